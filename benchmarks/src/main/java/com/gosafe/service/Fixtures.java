@@ -0,0 +1,402 @@
+package com.gosafe.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Upstream payloads for the benchmarks, per {@link Trip}.
+ *
+ * A recorded response on the classpath at /fixtures/{trip}-{osrm|overpass}.json
+ * (e.g. city_hop-osrm.json) or /fixtures/nominatim.json is used as is; capture
+ * one with curl against the real service and drop it into src/main/resources.
+ * Otherwise an equivalent payload is synthesized: the same fields and nesting
+ * the public services return (alternatives=3 with full GeoJSON geometry, steps
+ * and intersections; Overpass nodes with their usual tags), deterministic per
+ * trip, sized like real responses for that trip length.
+ */
+public final class Fixtures {
+
+    /** Trip size: endpoints, geometry points and steps per route, Overpass elements. */
+    public enum Trip {
+        CITY_HOP   ("Chhatrapati Shivaji Terminus", 18.9398, 72.8355, "Andheri",   19.1197, 72.8464,  1_200,  40,   500,  6),
+        INTERCITY  ("Mumbai",                       19.0760, 72.8777, "Pune",      18.5204, 73.8567,  5_000, 150, 1_500, 16),
+        CROSS_STATE("Mumbai",                       19.0760, 72.8777, "New Delhi", 28.6139, 77.2090, 30_000, 900, 4_000, 19);
+
+        final String fromName, toName;
+        final double fromLat, fromLng, toLat, toLng;
+        final int    points, steps, pois;
+        final double metersPerSecond;
+
+        Trip(String fromName, double fromLat, double fromLng, String toName, double toLat, double toLng,
+             int points, int steps, int pois, double metersPerSecond) {
+            this.fromName = fromName; this.fromLat = fromLat; this.fromLng = fromLng;
+            this.toName   = toName;   this.toLat   = toLat;   this.toLng   = toLng;
+            this.points = points; this.steps = steps; this.pois = pois;
+            this.metersPerSecond = metersPerSecond;
+        }
+
+        Map<String, Object> originGeo() { return geo(fromName, fromLat, fromLng); }
+        Map<String, Object> destGeo()   { return geo(toName,   toLat,   toLng); }
+
+        private static Map<String, Object> geo(String name, double lat, double lng) {
+            return Map.of("lat", lat, "lng", lng, "display", name + ", Maharashtra, India");
+        }
+    }
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private static final String[] ROADS = {
+        "Western Express Highway", "Eastern Express Highway", "Swami Vivekananda Road", "LBS Marg",
+        "Mumbai-Pune Expressway", "Old Mumbai-Pune Highway", "NH 48", "NH 52", "Ring Road", "Station Road", "" };
+    private static final String[] BRANDS = {
+        "Reliance Fresh", "DMart", "Apollo Pharmacy", "Cafe Coffee Day", "McDonald's", "HDFC Bank",
+        "Indian Oil", "Domino's", "State Bank of India", "Big Bazaar" };
+    private static final String[][] KINDS = {
+        { "shop", "supermarket" }, { "shop", "clothes" }, { "shop", "bakery" }, { "shop", "convenience" },
+        { "amenity", "restaurant" }, { "amenity", "cafe" }, { "amenity", "fast_food" }, { "amenity", "bank" },
+        { "amenity", "atm" }, { "amenity", "pharmacy" }, { "amenity", "fuel" }, { "amenity", "hospital" } };
+
+    private Fixtures() {}
+
+    // ─── Payloads ─────────────────────────────────────────────────────────────
+
+    /** OSRM /route response with three alternatives, overview=full&geometries=geojson&steps=true. */
+    static byte[] osrm(Trip t) {
+        byte[] recorded = recorded(t.name().toLowerCase() + "-osrm.json");
+        return recorded != null ? recorded : json(g -> writeOsrm(g, t));
+    }
+
+    /** Overpass [out:json] response for POIs around the trip's routes. */
+    static byte[] overpass(Trip t) {
+        byte[] recorded = recorded(t.name().toLowerCase() + "-overpass.json");
+        return recorded != null ? recorded : json(g -> writeOverpass(g, t));
+    }
+
+    /** Nominatim /search response with seven results and addressdetails=1 (an autocomplete answer). */
+    static byte[] nominatim() {
+        byte[] recorded = recorded("nominatim.json");
+        return recorded != null ? recorded : json(Fixtures::writeNominatim);
+    }
+
+    /** Writes safety layer CSVs covering parts of the trip's main route into dir. */
+    static void safetyLayers(Trip t, Path dir) throws IOException {
+        double[][] route = line(t, 0);
+        Random rnd = new Random(t.ordinal() * 31L + 7);
+        try (Writer lighting  = Files.newBufferedWriter(dir.resolve("lighting.csv"));
+             Writer cctv      = Files.newBufferedWriter(dir.resolve("cctv.csv"));
+             Writer police    = Files.newBufferedWriter(dir.resolve("police.csv"));
+             Writer incidents = Files.newBufferedWriter(dir.resolve("incidents.csv"))) {
+            lighting.write("lat,lng\n");
+            for (int i = 0; i < route[0].length; i++) {
+                if ((i / 50) % 3 == 2) continue;                       // unlit stretches
+                point(lighting, route, i, rnd, 15, 1);
+                if (i % 7 == 0)   point(cctv, route, i, rnd, 60, 1);
+                if (i % 300 == 0) point(police, route, i, rnd, 800, 1);
+                if (i % 90 == 0)  point(incidents, route, i, rnd, 150, 1 + rnd.nextInt(3));
+            }
+        }
+    }
+
+    /**
+     * RouteService with application defaults (3 routes, 500 m corridor, no POI store).
+     * Its upstreams, routing engine and executor are never reached by the benchmarked steps.
+     */
+    static RouteService routeService(SafetyScorer scorer, MeterRegistry registry) {
+        Map<String, Object> props = new HashMap<>();
+        for (String u : List.of("nominatim", "osrm", "overpass")) {
+            props.put("gosafe.upstream." + u + ".url", "http://localhost:9");
+            props.put("gosafe.upstream." + u + ".timeout", "5s");
+            props.put("gosafe.upstream." + u + ".connect-timeout", "1s");
+            props.put("gosafe.upstream." + u + ".max-connections", "4");
+        }
+        StandardEnvironment env = new StandardEnvironment();
+        env.setConversionService(new ApplicationConversionService());
+        env.getPropertySources().addFirst(new MapPropertySource("benchmark", props));
+        return new RouteService(new UpstreamClient(env, registry), points -> CompletableFuture.completedFuture(null),
+                                scorer, null, null, registry, 100, Duration.ofMinutes(10), Duration.ofMinutes(1),
+                                false, false, 500, 3, true);
+    }
+
+    // ─── OSRM ─────────────────────────────────────────────────────────────────
+    private static void writeOsrm(JsonGenerator g, Trip t) throws IOException {
+        g.writeStartObject();
+        g.writeStringField("code", "Ok");
+        g.writeArrayFieldStart("routes");
+        for (int alt = 0; alt < 3; alt++) {
+            double[][] line = line(t, alt);
+            double[] cumulative = cumulative(line);
+            double distance = cumulative[cumulative.length - 1];
+            double duration = distance / t.metersPerSecond * (1 + 0.08 * alt);
+
+            g.writeStartObject();
+            g.writeObjectFieldStart("geometry");
+            g.writeArrayFieldStart("coordinates");
+            for (int i = 0; i < line[0].length; i++) lngLat(g, line, i);
+            g.writeEndArray();
+            g.writeStringField("type", "LineString");
+            g.writeEndObject();
+
+            g.writeArrayFieldStart("legs");
+            g.writeStartObject();
+            g.writeArrayFieldStart("steps");
+            int n = line[0].length, steps = t.steps;
+            for (int s = 0; s < steps; s++) {
+                int from = s * (n - 1) / steps, to = (s + 1) * (n - 1) / steps;
+                double stepDist = cumulative[to] - cumulative[from];
+                g.writeStartObject();
+                g.writeObjectFieldStart("geometry");
+                g.writeArrayFieldStart("coordinates");
+                for (int i = from; i <= to; i++) lngLat(g, line, i);
+                g.writeEndArray();
+                g.writeStringField("type", "LineString");
+                g.writeEndObject();
+                g.writeObjectFieldStart("maneuver");
+                g.writeNumberField("bearing_after", (s * 37) % 360);
+                g.writeNumberField("bearing_before", (s * 53) % 360);
+                g.writeFieldName("location");
+                lngLat(g, line, from);
+                g.writeStringField("modifier", s % 2 == 0 ? "left" : "slight right");
+                g.writeStringField("type", s == 0 ? "depart" : "turn");
+                g.writeEndObject();
+                g.writeStringField("mode", "driving");
+                g.writeStringField("driving_side", "left");
+                g.writeStringField("name", ROADS[(s + alt) % ROADS.length]);
+                g.writeArrayFieldStart("intersections");
+                for (int k = 0; k < 3; k++) {
+                    int i = Math.min(to, from + k * Math.max(1, (to - from) / 3));
+                    g.writeStartObject();
+                    g.writeNumberField("out", 1);
+                    g.writeArrayFieldStart("entry");
+                    g.writeBoolean(true); g.writeBoolean(false); g.writeBoolean(true);
+                    g.writeEndArray();
+                    g.writeArrayFieldStart("bearings");
+                    g.writeNumber(15); g.writeNumber(105); g.writeNumber(195);
+                    g.writeEndArray();
+                    g.writeFieldName("location");
+                    lngLat(g, line, i);
+                    if (k > 0) g.writeNumberField("in", 2);
+                    g.writeEndObject();
+                }
+                g.writeEndArray();
+                g.writeNumberField("weight", round(stepDist / t.metersPerSecond, 1));
+                g.writeNumberField("duration", round(stepDist / t.metersPerSecond, 1));
+                g.writeNumberField("distance", round(stepDist, 1));
+                g.writeEndObject();
+            }
+            g.writeEndArray();
+            g.writeStringField("summary", ROADS[alt] + ", " + ROADS[alt + 3]);
+            g.writeNumberField("weight", round(duration, 1));
+            g.writeNumberField("duration", round(duration, 1));
+            g.writeNumberField("distance", round(distance, 1));
+            g.writeEndObject();
+            g.writeEndArray();
+
+            g.writeStringField("weight_name", "routability");
+            g.writeNumberField("weight", round(duration, 1));
+            g.writeNumberField("duration", round(duration, 1));
+            g.writeNumberField("distance", round(distance, 1));
+            g.writeEndObject();
+        }
+        g.writeEndArray();
+        g.writeArrayFieldStart("waypoints");
+        for (int end = 0; end < 2; end++) {
+            g.writeStartObject();
+            g.writeStringField("hint", "f2UJgP___38AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA" + end);
+            g.writeNumberField("distance", 4.2);
+            g.writeStringField("name", ROADS[end]);
+            g.writeArrayFieldStart("location");
+            g.writeNumber(end == 0 ? t.fromLng : t.toLng);
+            g.writeNumber(end == 0 ? t.fromLat : t.toLat);
+            g.writeEndArray();
+            g.writeEndObject();
+        }
+        g.writeEndArray();
+        g.writeEndObject();
+    }
+
+    /**
+     * Alternative alt of the trip as {lat[], lng[]}: the straight line bowed sideways
+     * (more for later alternatives) plus road-like wiggle and jitter.
+     */
+    static double[][] line(Trip t, int alt) {
+        int n = t.points;
+        double[] lat = new double[n], lng = new double[n];
+        double dLat = t.toLat - t.fromLat, dLng = t.toLng - t.fromLng;
+        double len  = Math.hypot(dLat, dLng);
+        double pLat = -dLng / len, pLng = dLat / len;                 // unit perpendicular
+        double bow  = new double[]{ 0, 0.04, -0.07 }[alt] * len;
+        Random rnd  = new Random(t.ordinal() * 101L + alt);
+        for (int i = 0; i < n; i++) {
+            double f    = (double) i / (n - 1);
+            double side = (bow + 0.004 * len * Math.sin(f * 40 + alt)) * Math.sin(Math.PI * f)
+                        + (i == 0 || i == n - 1 ? 0 : rnd.nextGaussian() * 0.00003);
+            lat[i] = t.fromLat + dLat * f + pLat * side;
+            lng[i] = t.fromLng + dLng * f + pLng * side;
+        }
+        return new double[][]{ lat, lng };
+    }
+
+    private static double[] cumulative(double[][] line) {
+        double[] c = new double[line[0].length];
+        for (int i = 1; i < c.length; i++)
+            c[i] = c[i - 1] + meters(line[0][i - 1], line[1][i - 1], line[0][i], line[1][i]);
+        return c;
+    }
+
+    private static double meters(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1), dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                 + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 6_371_000 * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
+    private static void lngLat(JsonGenerator g, double[][] line, int i) throws IOException {
+        g.writeStartArray();
+        g.writeNumber(round(line[1][i], 6));
+        g.writeNumber(round(line[0][i], 6));
+        g.writeEndArray();
+    }
+
+    // ─── Overpass ─────────────────────────────────────────────────────────────
+    private static void writeOverpass(JsonGenerator g, Trip t) throws IOException {
+        double[][][] routes = { line(t, 0), line(t, 1), line(t, 2) };
+        Random rnd = new Random(t.ordinal() * 13L + 3);
+        g.writeStartObject();
+        g.writeNumberField("version", 0.6);
+        g.writeStringField("generator", "Overpass API 0.7.62.1 084b4234");
+        g.writeObjectFieldStart("osm3s");
+        g.writeStringField("timestamp_osm_base", "2026-10-01T00:00:00Z");
+        g.writeStringField("copyright", "The data included in this document is from www.openstreetmap.org. "
+                                      + "The data is made available under ODbL.");
+        g.writeEndObject();
+        g.writeArrayFieldStart("elements");
+        for (int k = 0; k < t.pois; k++) {
+            double[][] route = routes[k % 3];
+            int i = rnd.nextInt(route[0].length);
+            double meters = rnd.nextDouble() * 900;                    // some fall outside the 500 m corridor
+            double angle  = rnd.nextDouble() * 2 * Math.PI;
+            double lat = route[0][i] + meters * Math.cos(angle) / 111_320;
+            double lng = route[1][i] + meters * Math.sin(angle) / (111_320 * Math.cos(Math.toRadians(route[0][i])));
+            String[] kind = KINDS[rnd.nextInt(KINDS.length)];
+
+            g.writeStartObject();
+            g.writeStringField("type", "node");
+            g.writeNumberField("id", 1_000_000_000L + t.ordinal() * 10_000_000L + k);
+            g.writeNumberField("lat", round(lat, 7));
+            g.writeNumberField("lon", round(lng, 7));
+            g.writeObjectFieldStart("tags");
+            if (rnd.nextInt(10) < 3) g.writeStringField("brand", BRANDS[rnd.nextInt(BRANDS.length)]);
+            g.writeStringField("name", kind[1].replace('_', ' ') + " " + k);
+            g.writeStringField(kind[0], kind[1]);
+            if (rnd.nextBoolean()) {
+                g.writeStringField("addr:street", ROADS[rnd.nextInt(ROADS.length - 1)]);
+                g.writeStringField(rnd.nextBoolean() ? "addr:suburb" : "addr:city", "Ward " + rnd.nextInt(40));
+                g.writeStringField("addr:postcode", "4000" + (10 + rnd.nextInt(90)));
+            }
+            g.writeStringField("opening_hours", "Mo-Su 09:00-22:00");
+            if (rnd.nextBoolean()) g.writeStringField("phone", "+91 22 " + (20_000_000 + rnd.nextInt(9_000_000)));
+            if (rnd.nextInt(4) == 0) g.writeStringField("website", "https://example.in/" + k);
+            g.writeStringField("check_date", "2025-0" + (1 + rnd.nextInt(9)) + "-15");
+            g.writeEndObject();
+            g.writeEndObject();
+        }
+        g.writeEndArray();
+        g.writeEndObject();
+    }
+
+    // ─── Nominatim ────────────────────────────────────────────────────────────
+    private static void writeNominatim(JsonGenerator g) throws IOException {
+        String[][] places = {
+            { "Andheri",          "railway", "station",     "Andheri",           "Andheri West",   "Mumbai" },
+            { "Andheri East",     "place",   "suburb",      null,                "Andheri East",   "Mumbai" },
+            { "Andheri Kurla Rd", "highway", "primary",     null,                "Marol",          "Mumbai" },
+            { "Andheri Metro",    "railway", "station",     "Andheri Metro",     "Andheri East",   "Mumbai" },
+            { "Andheri Sports",   "leisure", "stadium",     null,                "Andheri West",   "Mumbai" },
+            { "Andheri Court",    "amenity", "courthouse",  null,                "Andheri East",   null },
+            { "Andheri Bus Depot","amenity", "bus_station", null,                "Andheri West",   "Mumbai" } };
+        g.writeStartArray();
+        for (int i = 0; i < places.length; i++) {
+            String[] p = places[i];
+            g.writeStartObject();
+            g.writeNumberField("place_id", 231_456_000 + i);
+            g.writeStringField("licence", "Data © OpenStreetMap contributors, ODbL 1.0. http://osm.org/copyright");
+            g.writeStringField("osm_type", "node");
+            g.writeNumberField("osm_id", 2_456_789_000L + i);
+            g.writeStringField("lat", String.valueOf(19.1197 + i * 0.001));
+            g.writeStringField("lon", String.valueOf(72.8464 + i * 0.001));
+            g.writeStringField("class", p[1]);
+            g.writeStringField("type", p[2]);
+            g.writeNumberField("place_rank", 30);
+            g.writeNumberField("importance", 0.35 - i * 0.01);
+            g.writeStringField("addresstype", p[2]);
+            g.writeStringField("name", p[0]);
+            g.writeStringField("display_name", p[0] + ", " + p[4] + ", K/W Ward, Zone 3, Mumbai, Mumbai Suburban, "
+                                             + "Maharashtra, 400058, India");
+            g.writeObjectFieldStart("address");
+            if (p[3] != null) g.writeStringField(p[1], p[3]);
+            g.writeStringField("road", "Swami Vivekananda Road");
+            g.writeStringField("suburb", p[4]);
+            if (p[5] != null) g.writeStringField("city", p[5]);
+            g.writeStringField("state_district", "Mumbai Suburban");
+            g.writeStringField("state", "Maharashtra");
+            g.writeStringField("ISO3166-2-lvl4", "IN-MH");
+            g.writeStringField("postcode", "400058");
+            g.writeStringField("country", "India");
+            g.writeStringField("country_code", "in");
+            g.writeEndObject();
+            g.writeArrayFieldStart("boundingbox");
+            for (String b : new String[]{ "19.11", "19.13", "72.83", "72.85" }) g.writeString(b);
+            g.writeEndArray();
+            g.writeEndObject();
+        }
+        g.writeEndArray();
+    }
+
+    // ─── Helpers ──────────────────────────────────────────────────────────────
+    private interface Body { void write(JsonGenerator g) throws IOException; }
+
+    private static byte[] json(Body body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(1 << 16);
+        try (JsonGenerator g = JSON.createGenerator(out)) {
+            body.write(g);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] recorded(String name) {
+        try (InputStream in = Fixtures.class.getResourceAsStream("/fixtures/" + name)) {
+            return in == null ? null : in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void point(Writer w, double[][] route, int i, Random rnd, double spreadMeters, int weight)
+            throws IOException {
+        double lat = route[0][i] + rnd.nextGaussian() * spreadMeters / 111_320;
+        double lng = route[1][i] + rnd.nextGaussian() * spreadMeters / 111_320;
+        w.write(String.format(Locale.US, "%.6f,%.6f,%d%n", lat, lng, weight));
+    }
+
+    private static double round(double v, int decimals) {
+        double scale = Math.pow(10, decimals);
+        return Math.round(v * scale) / scale;
+    }
+}
@@ -0,0 +1,48 @@
+package com.gosafe.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/** Nominatim answers: a search geocode and a seven-result autocomplete list. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+public class GeocodeBenchmark {
+
+    private String       body;
+    private RouteService service;
+    private ObjectMapper mapper;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        body = new String(Fixtures.nominatim(), StandardCharsets.UTF_8);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        service = Fixtures.routeService(new SafetyScorer(registry, Path.of("no-safety-layers"), 50), registry);
+        mapper  = new ObjectMapper();
+    }
+
+    /** Search geocode: first result to {lat, lng, display}. */
+    @Benchmark
+    public Map<String, Object> parsePlace() {
+        return service.parsePlace(body);
+    }
+
+    /** Autocomplete: every result through formatPlace. */
+    @Benchmark
+    public List<Map<String, Object>> formatPlaces() throws IOException {
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (JsonNode d : mapper.readTree(body)) results.add(service.formatPlace(d));
+        return results;
+    }
+}
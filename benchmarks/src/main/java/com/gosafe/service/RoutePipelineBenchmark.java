@@ -0,0 +1,154 @@
+package com.gosafe.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gosafe.entity.Poi;
+import com.gosafe.service.Fixtures.Trip;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * The CPU-bound steps of a route search, per trip size, in pipeline order:
+ * OSRM parse, geometry to waypoints, candidate dedupe, Overpass parse and shop
+ * matching, safety scoring, labelling, result assembly and JSON serialization.
+ * Inputs for each step are the outputs of the previous ones, prepared once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+public class RoutePipelineBenchmark {
+
+    @Param({ "CITY_HOP", "INTERCITY", "CROSS_STATE" })
+    public Trip trip;
+
+    private byte[] osrm, overpass;
+
+    private RouteService service;
+    private SafetyScorer scorer;
+    private Path         layers;
+    private ObjectMapper mapper;
+
+    private Map<String, Object>  originGeo, destGeo;
+    private List<RoutePath>      paths;
+    private List<List<double[]>> waypoints;
+    private List<RouteSummary>   candidates;
+    private List<Poi>            pois;
+    private List<Shop>           shops;
+    private List<List<Shop>>     shopsPerRoute;
+    private List<RouteResult>    results;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        osrm     = Fixtures.osrm(trip);
+        overpass = Fixtures.overpass(trip);
+
+        layers = Files.createTempDirectory("gosafe-bench-layers");
+        Fixtures.safetyLayers(trip, layers);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        scorer  = new SafetyScorer(registry, layers, 50);
+        service = Fixtures.routeService(scorer, registry);
+        mapper  = new ObjectMapper();
+
+        originGeo = trip.originGeo();
+        destGeo   = trip.destGeo();
+        paths     = UpstreamJson.osrmRoutes(new ByteArrayInputStream(osrm));
+        waypoints = paths.stream().map(RoutePath::waypoints).toList();
+
+        // The three alternatives plus via detours: two collapse onto an alternative, one is distinct
+        candidates = new ArrayList<>();
+        for (RoutePath p : paths) candidates.add(RouteSummary.of(p));
+        RoutePath first = paths.get(0), last = paths.get(paths.size() - 1);
+        candidates.add(summary(first.duration() + 20, first.distance() * 1.005));
+        candidates.add(summary(last.duration() - 30, last.distance() * 0.99));
+        candidates.add(summary(last.duration() * 1.3, last.distance() * 1.25));
+
+        pois          = UpstreamJson.overpassPois(new ByteArrayInputStream(overpass));
+        shops         = service.toShops(pois);
+        shopsPerRoute = waypoints.stream().map(w -> service.shopsAlong(pois, shops, w)).toList();
+        results       = service.assembleRoutes(originGeo, destGeo, paths, shopsPerRoute);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.list(layers)) {
+            for (Path f : files.toList()) Files.delete(f);
+        }
+        Files.delete(layers);
+    }
+
+    // ─── Benchmarks ───────────────────────────────────────────────────────────
+
+    /** OSRM response (three routes, full geometry and steps) to RoutePaths. */
+    @Benchmark
+    public List<RoutePath> parseOsrm() throws IOException {
+        return UpstreamJson.osrmRoutes(new ByteArrayInputStream(osrm));
+    }
+
+    /** Route geometry to the {lat, lng} lists shop lookup works on. */
+    @Benchmark
+    public void waypoints(Blackhole bh) {
+        for (RoutePath p : paths) bh.consume(p.waypoints());
+    }
+
+    @Benchmark
+    public List<RouteSummary> dedupeCandidates() {
+        return service.pickDistinct(candidates);
+    }
+
+    /** Overpass response to POIs. */
+    @Benchmark
+    public List<Poi> parseOverpass() throws IOException {
+        return UpstreamJson.overpassPois(new ByteArrayInputStream(overpass));
+    }
+
+    /** Parsed POIs to the shops along each route (corridor filter, order, thinning). */
+    @Benchmark
+    public void shopsAlongRoutes(Blackhole bh) {
+        List<Shop> all = service.toShops(pois);
+        for (List<double[]> w : waypoints) bh.consume(service.shopsAlong(pois, all, w));
+    }
+
+    @Benchmark
+    public void scoreSafety(Blackhole bh) {
+        for (int i = 0; i < paths.size(); i++) bh.consume(scorer.score(paths.get(i), i, shopsPerRoute.get(i).size()));
+    }
+
+    @Benchmark
+    public void labelRoutes(Blackhole bh) {
+        for (RoutePath p : paths) bh.consume(service.labelRoute(p, paths));
+    }
+
+    /** Paths and shops to the ranked results: labels, safety, geometry, stops, brands. */
+    @Benchmark
+    public List<RouteResult> assembleRoutes() {
+        return service.assembleRoutes(originGeo, destGeo, paths, shopsPerRoute);
+    }
+
+    /** The /routes/search response body. */
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return mapper.writeValueAsBytes(Map.of(
+            "success",     true,
+            "origin",      trip.fromName,
+            "destination", trip.toName,
+            "routes",      results));
+    }
+
+    // ─── Setup helpers ────────────────────────────────────────────────────────
+    private static RouteSummary summary(double duration, double distance) {
+        return new RouteSummary(duration, distance, () -> CompletableFuture.completedFuture(null));
+    }
+
+}
@@ -0,0 +1,103 @@
+package com.gosafe.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls for the same key into one in-flight future.
+ *
+ * The first caller for a key starts the call; anyone asking for that key before
+ * it completes shares its result. Every caller gets its own copy of the future,
+ * so completing or timing out one copy does not affect the others. Once every
+ * copy has been completed or cancelled by its caller, nobody waits for the
+ * result any more: the call's future is cancelled and the key is freed.
+ */
+public class SingleFlight<K, V> {
+
+    private static final class Flight<V> {
+        final CompletableFuture<V> result = new CompletableFuture<>();
+        volatile CompletableFuture<V> call;
+        int waiters;   // guarded by the map's per-key compute
+    }
+
+    private final ConcurrentHashMap<K, Flight<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder leaders   = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder abandoned = new LongAdder();
+
+    public CompletableFuture<V> run(K key, Supplier<CompletableFuture<V>> call) {
+        Flight<V> mine = new Flight<>();
+        Flight<V> flight = inFlight.compute(key, (k, cur) -> {
+            Flight<V> f = cur != null ? cur : mine;
+            f.waiters++;
+            return f;
+        });
+        if (flight != mine) {
+            coalesced.increment();
+            return copy(key, flight);
+        }
+        leaders.increment();
+        try {
+            CompletableFuture<V> f = call.get();
+            mine.call = f;
+            if (mine.result.isCancelled()) f.cancel(false);
+            f.whenComplete((v, err) -> {
+                inFlight.remove(key, mine);
+                if (err != null) mine.result.completeExceptionally(err);
+                else             mine.result.complete(v);
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(key, mine);
+            mine.result.completeExceptionally(e);
+        }
+        return copy(key, mine);
+    }
+
+    // A copy completed before the shared result means its caller has stopped waiting
+    private CompletableFuture<V> copy(K key, Flight<V> flight) {
+        CompletableFuture<V> copy = flight.result.copy();
+        copy.whenComplete((v, err) -> { if (!flight.result.isDone()) leave(key, flight); });
+        return copy;
+    }
+
+    private void leave(K key, Flight<V> flight) {
+        boolean[] last = new boolean[1];
+        inFlight.computeIfPresent(key, (k, cur) -> {
+            if (cur != flight) return cur;
+            last[0] = --cur.waiters == 0;
+            return last[0] ? null : cur;
+        });
+        if (!last[0]) return;
+        abandoned.increment();
+        flight.result.cancel(false);
+        CompletableFuture<V> call = flight.call;
+        if (call != null) call.cancel(false);
+    }
+
+    /**
+     * Returns dependent, a future derived from source. If dependent completes first,
+     * because its caller timed it out or cancelled it, source is cancelled as well, so
+     * giving up on a derived future also releases the copy or request behind it.
+     */
+    public static <T> CompletableFuture<T> derived(CompletableFuture<?> source, CompletableFuture<T> dependent) {
+        dependent.whenComplete((v, err) -> source.cancel(false));
+        return dependent;
+    }
+
+    /** Registers gosafe.singleflight.calls{name, result=leader|coalesced|abandoned}. */
+    public SingleFlight<K, V> bindTo(MeterRegistry registry, String name) {
+        FunctionCounter.builder("gosafe.singleflight.calls", leaders, LongAdder::sum)
+            .tags("name", name, "result", "leader").register(registry);
+        FunctionCounter.builder("gosafe.singleflight.calls", coalesced, LongAdder::sum)
+            .tags("name", name, "result", "coalesced").register(registry);
+        FunctionCounter.builder("gosafe.singleflight.calls", abandoned, LongAdder::sum)
+            .tags("name", name, "result", "abandoned").register(registry);
+        return this;
+    }
+}
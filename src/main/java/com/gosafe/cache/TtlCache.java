@@ -0,0 +1,94 @@
+package com.gosafe.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded in-memory LRU cache whose entries expire after a TTL.
+ * Once full, the least recently used entry is evicted.
+ *
+ * Hit / miss / eviction counts are kept so they can be published through
+ * {@link #bindTo(MeterRegistry, String)}.
+ */
+public class TtlCache<K, V> {
+
+    private record Entry<V>(V value, long expiresAt) {}
+
+    private final int  maxSize;
+    private final long ttlMillis;
+    private final LinkedHashMap<K, Entry<V>> map;
+
+    private final LongAdder hits      = new LongAdder();
+    private final LongAdder misses    = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public TtlCache(int maxSize, Duration ttl) {
+        this.maxSize   = maxSize;
+        this.ttlMillis = ttl.toMillis();
+        this.map = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() <= TtlCache.this.maxSize) return false;
+                evictions.increment();
+                return true;
+            }
+        };
+    }
+
+    /** Cached value, or null when absent or expired. */
+    public synchronized V get(K key) {
+        Entry<V> e = map.get(key);
+        if (e != null && e.expiresAt() <= System.currentTimeMillis()) {
+            map.remove(key);
+            e = null;
+        }
+        if (e == null) { misses.increment(); return null; }
+        hits.increment();
+        return e.value();
+    }
+
+    public void put(K key, V value) {
+        put(key, value, ttlMillis);
+    }
+
+    /** Store with a TTL other than the cache default (e.g. shorter for negative entries). */
+    public void put(K key, V value, Duration ttl) {
+        put(key, value, ttl.toMillis());
+    }
+
+    private synchronized void put(K key, V value, long ttl) {
+        if (ttl <= 0 || maxSize <= 0) return;
+        map.put(key, new Entry<>(value, System.currentTimeMillis() + ttl));
+    }
+
+    public synchronized void invalidate(K key) {
+        map.remove(key);
+    }
+
+    public synchronized void clear() {
+        map.clear();
+    }
+
+    public synchronized int size() {
+        return map.size();
+    }
+
+    /** Registers gosafe.cache.gets / evictions / size meters tagged with the cache name. */
+    public TtlCache<K, V> bindTo(MeterRegistry registry, String name) {
+        FunctionCounter.builder("gosafe.cache.gets", hits, LongAdder::sum)
+            .tags("cache", name, "result", "hit").register(registry);
+        FunctionCounter.builder("gosafe.cache.gets", misses, LongAdder::sum)
+            .tags("cache", name, "result", "miss").register(registry);
+        FunctionCounter.builder("gosafe.cache.evictions", evictions, LongAdder::sum)
+            .tag("cache", name).register(registry);
+        Gauge.builder("gosafe.cache.size", this, TtlCache::size)
+            .tag("cache", name).register(registry);
+        return this;
+    }
+}
@@ -0,0 +1,76 @@
+package com.gosafe.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Application-wide pool for the route pipeline (OSRM fan-out, shop lookups).
+ *
+ * Bounded on both threads and queue; once full, the submitting request thread
+ * runs the task itself, which throttles upstream fan-out instead of failing.
+ * Spring Boot publishes executor.active / executor.queued / executor.pool.size
+ * for it (tag name=routeExecutor), and it drains on context shutdown.
+ */
+@Configuration
+public class ExecutorConfig {
+
+    @Bean
+    public ThreadPoolTaskExecutor routeExecutor(
+            @Value("${gosafe.route-executor.core-size}") int coreSize,
+            @Value("${gosafe.route-executor.max-size}") int maxSize,
+            @Value("${gosafe.route-executor.queue-capacity}") int queueCapacity) {
+        ThreadPoolTaskExecutor ex = new ThreadPoolTaskExecutor();
+        ex.setCorePoolSize(coreSize);
+        ex.setMaxPoolSize(maxSize);
+        ex.setQueueCapacity(queueCapacity);
+        ex.setThreadNamePrefix("route-");
+        ex.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        ex.setWaitForTasksToCompleteOnShutdown(true);
+        ex.setAwaitTerminationSeconds(30);
+        return ex;
+    }
+
+    /**
+     * Password hashing pool (BCrypt is ~250 ms of CPU per call at cost 12). One thread
+     * per core by default and a short queue; once full, submissions are rejected so
+     * the caller can shed load (503) instead of tying up request threads.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor passwordExecutor(
+            @Value("${gosafe.password.pool-size:0}") int poolSize,
+            @Value("${gosafe.password.queue-capacity}") int queueCapacity) {
+        int threads = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor ex = new ThreadPoolTaskExecutor();
+        ex.setCorePoolSize(threads);
+        ex.setMaxPoolSize(threads);
+        ex.setQueueCapacity(queueCapacity);
+        ex.setThreadNamePrefix("bcrypt-");
+        ex.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        ex.setWaitForTasksToCompleteOnShutdown(true);
+        ex.setAwaitTerminationSeconds(10);
+        return ex;
+    }
+
+    /**
+     * Avatar thumbnailing: a couple of threads, since decoding a large photo takes
+     * tens of MB; once the queue is full new avatars keep their original image.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor avatarExecutor(
+            @Value("${gosafe.avatar.pool-size}") int poolSize,
+            @Value("${gosafe.avatar.queue-capacity}") int queueCapacity) {
+        ThreadPoolTaskExecutor ex = new ThreadPoolTaskExecutor();
+        ex.setCorePoolSize(poolSize);
+        ex.setMaxPoolSize(poolSize);
+        ex.setQueueCapacity(queueCapacity);
+        ex.setThreadNamePrefix("avatar-");
+        ex.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        ex.setWaitForTasksToCompleteOnShutdown(true);
+        ex.setAwaitTerminationSeconds(10);
+        return ex;
+    }
+}
@@ -1,6 +1,8 @@
 package com.gosafe.config;
 
 import com.gosafe.controller.AuthController.UnauthorizedException;
+import com.gosafe.service.PasswordHasher.BusyException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
@@ -26,6 +28,14 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(401).body(Map.of("error", ex.getMessage()));
     }
 
+    /** Password hashing pool saturated → 503 with Retry-After */
+    @ExceptionHandler(BusyException.class)
+    public ResponseEntity<?> handleBusy(BusyException ex) {
+        return ResponseEntity.status(503)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, ex.getRetryAfter().toSeconds())))
+            .body(Map.of("error", ex.getMessage()));
+    }
+
     /** Catch-all → 500 */
     @ExceptionHandler(Exception.class)
     public ResponseEntity<?> handleGeneral(Exception ex) {
@@ -1,16 +1,23 @@
 package com.gosafe.config;
 
+import com.gosafe.service.AvatarService;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 
 /**
  * Serves uploaded files at /uploads/**
  * Equivalent of: app.use('/uploads', express.static(...))
+ *
+ * Avatars are named by content hash (see AvatarService), so they are cached
+ * for a year as immutable with the file name as a strong ETag. Older uploads
+ * revalidate by Last-Modified. Range requests are supported for both.
  */
 @Configuration
 public class StaticResourceConfig implements WebMvcConfigurer {
@@ -21,7 +28,12 @@ public class StaticResourceConfig implements WebMvcConfigurer {
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
         Path uploadPath = Paths.get(uploadDir).toAbsolutePath();
+        registry.addResourceHandler("/uploads/" + AvatarService.DIR + "/**")
+                .addResourceLocations("file:" + uploadPath.resolve(AvatarService.DIR) + "/")
+                .setCacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable())
+                .setEtagGenerator(resource -> "\"" + resource.getFilename() + "\"");
         registry.addResourceHandler("/uploads/**")
-                .addResourceLocations("file:" + uploadPath + "/");
+                .addResourceLocations("file:" + uploadPath + "/")
+                .setCacheControl(CacheControl.noCache().cachePublic());
     }
 }
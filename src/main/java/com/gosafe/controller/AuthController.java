@@ -5,40 +5,57 @@ import com.gosafe.dto.*;
 import com.gosafe.entity.*;
 import com.gosafe.repository.*;
 import com.gosafe.security.JwtUtil;
+import com.gosafe.service.AccountCache;
+import com.gosafe.service.AvatarService;
+import com.gosafe.service.PasswordHasher;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.nio.file.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/auth")
 public class AuthController {
 
     private final UserRepository         userRepo;
+    private final AccountCache           accounts;
+    private final AvatarService          avatars;
     private final RouteHistoryRepository historyRepo;
     private final SavedRouteRepository   savedRepo;
     private final JwtUtil                jwtUtil;
-    private final BCryptPasswordEncoder  bcrypt = new BCryptPasswordEncoder(12);
+    private final PasswordHasher         passwords;
     private final ObjectMapper           mapper = new ObjectMapper();
 
-    @Value("${gosafe.upload.dir}")
-    private String uploadDir;
+    private static final int MAX_HISTORY_PAGE = 100;
 
     public AuthController(UserRepository userRepo,
+                          AccountCache accounts,
+                          AvatarService avatars,
                           RouteHistoryRepository historyRepo,
                           SavedRouteRepository savedRepo,
-                          JwtUtil jwtUtil) {
+                          JwtUtil jwtUtil,
+                          PasswordHasher passwords) {
         this.userRepo    = userRepo;
+        this.accounts    = accounts;
+        this.avatars     = avatars;
         this.historyRepo = historyRepo;
         this.savedRepo   = savedRepo;
         this.jwtUtil     = jwtUtil;
+        this.passwords   = passwords;
     }
 
     // ── Helper: get userId from request, or 401 ───────────────────────────────
@@ -49,44 +66,68 @@ public class AuthController {
     }
 
     // ── POST /api/auth/signup ─────────────────────────────────────────────────
+    // Password hashing runs on PasswordHasher's pool; the request thread is released meanwhile.
     @PostMapping("/signup")
-    public ResponseEntity<?> signup(@Valid @RequestBody SignupRequest body) {
+    public CompletableFuture<ResponseEntity<?>> signup(@Valid @RequestBody SignupRequest body) {
         String email = body.getEmail().trim().toLowerCase();
         if (userRepo.existsByEmail(email))
-            return ResponseEntity.status(409).body(Map.of("error", "An account with that email already exists."));
+            return CompletableFuture.completedFuture(ResponseEntity.status(409)
+                .body(Map.of("error", "An account with that email already exists.")));
 
-        User user = new User();
-        user.setName(body.getName().trim());
-        user.setEmail(email);
-        user.setPasswordHash(bcrypt.encode(body.getPassword()));
-        user = userRepo.save(user);
+        return passwords.encode(body.getPassword()).thenApply(hash -> {
+            User user = new User();
+            user.setName(body.getName().trim());
+            user.setEmail(email);
+            user.setPasswordHash(hash);
+            user = userRepo.save(user);
 
-        String token = jwtUtil.generateToken(user.getId(), user.getEmail(), user.getName());
-        return ResponseEntity.status(201).body(Map.of(
-            "token", token,
-            "user",  safeUser(user)
-        ));
+            String token = jwtUtil.generateToken(user.getId(), user.getEmail(), user.getName());
+            return ResponseEntity.status(201).body(Map.of(
+                "token", token,
+                "user",  safeUser(user)
+            ));
+        });
     }
 
     // ── POST /api/auth/login ──────────────────────────────────────────────────
     @PostMapping("/login")
-    public ResponseEntity<?> login(@Valid @RequestBody LoginRequest body) {
+    public CompletableFuture<ResponseEntity<?>> login(@Valid @RequestBody LoginRequest body) {
         String email = body.getEmail().trim().toLowerCase();
         Optional<User> opt = userRepo.findByEmail(email);
 
-        if (opt.isEmpty() || !bcrypt.matches(body.getPassword(), opt.get().getPasswordHash()))
-            return ResponseEntity.status(401).body(Map.of("error", "Invalid email or password."));
+        if (opt.isEmpty())
+            return CompletableFuture.completedFuture(invalidLogin());
 
-        User user  = opt.get();
-        String tok = jwtUtil.generateToken(user.getId(), user.getEmail(), user.getName());
-        return ResponseEntity.ok(Map.of("token", tok, "user", safeUser(user)));
+        User user = opt.get();
+        return passwords.matches(body.getPassword(), user.getPasswordHash()).thenApply(ok -> {
+            if (!ok) return invalidLogin();
+            if (passwords.needsRehash(user.getPasswordHash())) rehash(user, body.getPassword());
+            String tok = jwtUtil.generateToken(user.getId(), user.getEmail(), user.getName());
+            return ResponseEntity.ok(Map.of("token", tok, "user", safeUser(user)));
+        });
+    }
+
+    private static ResponseEntity<?> invalidLogin() {
+        return ResponseEntity.status(401).body(Map.of("error", "Invalid email or password."));
+    }
+
+    // Hash made with an older, lower cost: re-encode in the background, login does not wait
+    private void rehash(User user, String rawPassword) {
+        String oldHash = user.getPasswordHash();
+        try {
+            passwords.encode(rawPassword).thenAccept(hash -> userRepo.findById(user.getId())
+                .filter(u -> oldHash.equals(u.getPasswordHash()))
+                .ifPresent(u -> { u.setPasswordHash(hash); accounts.saveUser(u); }));
+        } catch (PasswordHasher.BusyException ignored) {
+            // try again on a later login
+        }
     }
 
     // ── GET /api/auth/me ──────────────────────────────────────────────────────
     @GetMapping("/me")
     public ResponseEntity<?> getMe(HttpServletRequest req) {
         Long uid = requireAuth(req);
-        return userRepo.findById(uid)
+        return accounts.user(uid)
             .map(u -> ResponseEntity.ok(Map.of("user", safeUser(u))))
             .orElse(ResponseEntity.status(404).body(null));
     }
@@ -115,39 +156,85 @@ public class AuthController {
             if (avatar.getSize() > 3 * 1024 * 1024)
                 return ResponseEntity.badRequest().body(Map.of("error", "File too large (max 3MB)."));
 
-            String ext      = Objects.requireNonNull(avatar.getOriginalFilename()).replaceAll(".*\\.", ".");
-            String filename = "avatar_" + System.currentTimeMillis() + ext;
-            Path dir        = Paths.get(uploadDir).toAbsolutePath();
-            Files.createDirectories(dir);
-            Files.copy(avatar.getInputStream(), dir.resolve(filename), StandardCopyOption.REPLACE_EXISTING);
-            user.setAvatarUrl("/uploads/" + filename);
+            user.setAvatarUrl(avatars.store(avatar));
         }
 
-        user = userRepo.save(user);
+        user = accounts.saveUser(user);
+        // Thumbnails replace the original URL once ready (later /me calls see them)
+        if (avatar != null && !avatar.isEmpty()) avatars.thumbnail(uid, user.getAvatarUrl());
         return ResponseEntity.ok(Map.of("user", safeUser(user)));
     }
 
     // ── POST /api/auth/change-password ────────────────────────────────────────
     @PostMapping("/change-password")
-    public ResponseEntity<?> changePassword(HttpServletRequest req,
-                                            @Valid @RequestBody ChangePasswordRequest body) {
+    public CompletableFuture<ResponseEntity<?>> changePassword(HttpServletRequest req,
+                                                               @Valid @RequestBody ChangePasswordRequest body) {
         Long uid  = requireAuth(req);
-        User user = userRepo.findById(uid)
+        User user = accounts.user(uid)
             .orElseThrow(() -> new UnauthorizedException("User not found."));
 
-        if (!bcrypt.matches(body.getCurrentPassword(), user.getPasswordHash()))
-            return ResponseEntity.status(401).body(Map.of("error", "Current password is incorrect."));
-
-        user.setPasswordHash(bcrypt.encode(body.getNewPassword()));
-        userRepo.save(user);
-        return ResponseEntity.ok(Map.of("message", "Password updated successfully."));
+        return passwords.matches(body.getCurrentPassword(), user.getPasswordHash()).thenCompose(ok -> {
+            if (!ok)
+                return CompletableFuture.completedFuture(ResponseEntity.status(401)
+                    .body(Map.of("error", "Current password is incorrect.")));
+            return passwords.encode(body.getNewPassword()).thenApply(hash -> {
+                // The cached user is shared; update a fresh copy
+                User fresh = userRepo.findById(uid)
+                    .orElseThrow(() -> new UnauthorizedException("User not found."));
+                fresh.setPasswordHash(hash);
+                accounts.saveUser(fresh);
+                return ResponseEntity.ok(Map.of("message", "Password updated successfully."));
+            });
+        });
     }
 
-    // ── GET /api/auth/history ─────────────────────────────────────────────────
+    // ── GET /api/auth/history?cursor=...&limit=20 ────────────────────────────
+    // Newest first; pass the returned nextCursor to get the next (older) page.
     @GetMapping("/history")
-    public ResponseEntity<?> getHistory(HttpServletRequest req) {
+    public ResponseEntity<?> getHistory(HttpServletRequest req,
+                                        @RequestParam(required = false) String cursor,
+                                        @RequestParam(defaultValue = "20") int limit) {
         Long uid = requireAuth(req);
-        return ResponseEntity.ok(Map.of("history", historyRepo.findTop20ByUserIdOrderBySearchedAtDesc(uid)));
+        int size = Math.max(1, Math.min(MAX_HISTORY_PAGE, limit));
+        Pageable page = PageRequest.of(0, size + 1);     // one extra row tells whether there is more
+
+        List<RouteHistorySummary> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = historyRepo.findLatest(uid, page);
+        } else {
+            String[] key = decodeCursor(cursor);
+            if (key == null) return ResponseEntity.badRequest().body(Map.of("error", "Invalid cursor."));
+            rows = historyRepo.findBefore(uid, LocalDateTime.parse(key[0]), Long.parseLong(key[1]), page);
+        }
+
+        String next = null;
+        if (rows.size() > size) {
+            rows = rows.subList(0, size);
+            RouteHistorySummary last = rows.get(size - 1);
+            next = encodeCursor(last.getSearchedAt(), last.getId());
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("history",    rows);
+        body.put("nextCursor", next);
+        return ResponseEntity.ok(body);
+    }
+
+    private static String encodeCursor(LocalDateTime searchedAt, Long id) {
+        String key = searchedAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // {searchedAt, id}, or null when malformed
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String[] key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            if (key.length != 2) return null;
+            LocalDateTime.parse(key[0]);
+            Long.parseLong(key[1]);
+            return key;
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return null;
+        }
     }
 
     // ── POST /api/auth/saved-routes ───────────────────────────────────────────
@@ -162,26 +249,62 @@ public class AuthController {
         sr.setRouteName(body.getRoute_name());
         sr.setLabel(body.getLabel());
         if (body.getRoute_data() != null)
-            sr.setRouteData(mapper.writeValueAsString(body.getRoute_data()));
-        savedRepo.save(sr);
-        return ResponseEntity.status(201).body(Map.of("message", "Route saved."));
+            sr.setRouteDataGz(gzipJson(body.getRoute_data()));
+        sr = savedRepo.save(sr);
+        return ResponseEntity.status(201).body(Map.of("message", "Route saved.", "id", sr.getId()));
     }
 
     // ── GET /api/auth/saved-routes ────────────────────────────────────────────
+    // Summaries only; the route data is loaded by the detail endpoint.
     @GetMapping("/saved-routes")
     public ResponseEntity<?> getSavedRoutes(HttpServletRequest req) {
         Long uid = requireAuth(req);
         return ResponseEntity.ok(Map.of("routes", savedRepo.findByUserIdOrderBySavedAtDesc(uid)));
     }
 
+    // ── GET /api/auth/saved-routes/{id} ───────────────────────────────────────
+    @GetMapping("/saved-routes/{id}")
+    public ResponseEntity<?> getSavedRoute(HttpServletRequest req, @PathVariable Long id) throws IOException {
+        Long uid = requireAuth(req);
+        Optional<SavedRoute> found = savedRepo.findByIdAndUserId(id, uid);
+        if (found.isEmpty())
+            return ResponseEntity.status(404).body(Map.of("error", "Saved route not found."));
+
+        SavedRoute sr = found.get();
+        Map<String, Object> route = new LinkedHashMap<>();
+        route.put("id",          sr.getId());
+        route.put("origin",      sr.getOrigin());
+        route.put("destination", sr.getDestination());
+        route.put("routeName",   sr.getRouteName());
+        route.put("label",       sr.getLabel());
+        route.put("savedAt",     sr.getSavedAt());
+        route.put("routeData",   sr.getRouteDataGz() != null ? gunzip(sr.getRouteDataGz()) : sr.getRouteData());
+        return ResponseEntity.ok(Map.of("route", route));
+    }
+
     // ── DELETE /api/auth/saved-routes/{id} ────────────────────────────────────
     @DeleteMapping("/saved-routes/{id}")
     public ResponseEntity<?> deleteSavedRoute(HttpServletRequest req, @PathVariable Long id) {
         Long uid = requireAuth(req);
-        savedRepo.findByIdAndUserId(id, uid).ifPresent(savedRepo::delete);
+        savedRepo.deleteByIdAndUserId(id, uid);
         return ResponseEntity.ok(Map.of("message", "Route deleted."));
     }
 
+    // ── Helpers: saved route data is stored as gzip-compressed JSON ───────────
+    private byte[] gzipJson(Object data) throws IOException {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(buf, 8192)) {
+            mapper.writeValue(out, data);
+        }
+        return buf.toByteArray();
+    }
+
+    private static String gunzip(byte[] gz) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gz), 8192)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
     // ── Helper: strip passwordHash from User ─────────────────────────────────
     private Map<String, Object> safeUser(User u) {
         Map<String, Object> m = new LinkedHashMap<>();
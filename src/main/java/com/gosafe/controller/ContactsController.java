@@ -2,11 +2,10 @@ package com.gosafe.controller;
 
 import com.gosafe.dto.AddContactRequest;
 import com.gosafe.entity.EmergencyContact;
-import com.gosafe.repository.EmergencyContactRepository;
+import com.gosafe.service.AccountCache;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.http.ResponseEntity;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Map;
@@ -15,10 +14,10 @@ import java.util.Map;
 @RequestMapping("/api/contacts")
 public class ContactsController {
 
-    private final EmergencyContactRepository repo;
+    private final AccountCache accounts;
 
-    public ContactsController(EmergencyContactRepository repo) {
-        this.repo = repo;
+    public ContactsController(AccountCache accounts) {
+        this.accounts = accounts;
     }
 
     private Long requireAuth(HttpServletRequest req) {
@@ -32,7 +31,7 @@ public class ContactsController {
     @GetMapping
     public ResponseEntity<?> getContacts(HttpServletRequest req) {
         Long uid = requireAuth(req);
-        return ResponseEntity.ok(Map.of("contacts", repo.findByUserIdOrderByIdAsc(uid)));
+        return ResponseEntity.ok(Map.of("contacts", accounts.contacts(uid)));
     }
 
     // ── POST /api/contacts ────────────────────────────────────────────────────
@@ -41,7 +40,7 @@ public class ContactsController {
                                         @Valid @RequestBody AddContactRequest body) {
         Long uid = requireAuth(req);
 
-        if (repo.countByUserId(uid) >= 5)
+        if (accounts.contacts(uid).size() >= 5)
             return ResponseEntity.badRequest().body(Map.of("error", "Maximum 5 emergency contacts allowed."));
 
         // Sanitise phone: strip spaces, dashes, parentheses
@@ -52,17 +51,16 @@ public class ContactsController {
         c.setName(body.getName().trim());
         c.setPhone(cleanPhone);
         c.setRelation(body.getRelation() != null ? body.getRelation().trim() : null);
-        c = repo.save(c);
+        c = accounts.saveContact(c);
 
         return ResponseEntity.status(201).body(Map.of("contact", c));
     }
 
     // ── DELETE /api/contacts/{id} ─────────────────────────────────────────────
-    @Transactional
     @DeleteMapping("/{id}")
     public ResponseEntity<?> deleteContact(HttpServletRequest req, @PathVariable Long id) {
         Long uid = requireAuth(req);
-        repo.deleteByIdAndUserId(id, uid);
+        accounts.deleteContact(id, uid);
         return ResponseEntity.ok(Map.of("message", "Contact removed."));
     }
 }
@@ -2,30 +2,46 @@ package com.gosafe.controller;
 
 import com.gosafe.dto.RouteSearchRequest;
 import com.gosafe.entity.RouteHistory;
-import com.gosafe.repository.RouteHistoryRepository;
-import com.gosafe.service.RouteService;
+import com.gosafe.service.*;
+import com.gosafe.service.UpstreamClient.DroppedException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.regex.Pattern;
 
 @RestController
 public class RouteController {
 
     private final RouteService           routeService;
-    private final RouteHistoryRepository historyRepo;
+    private final RouteResultCache       routeCache;
+    private final HistoryWriter          historyWriter;
 
-    public RouteController(RouteService routeService, RouteHistoryRepository historyRepo) {
-        this.routeService = routeService;
-        this.historyRepo  = historyRepo;
+    private static final long STREAM_TIMEOUT_MS = 60_000;
+
+    // Random per-tab id sent by the frontend with autocomplete requests
+    private static final String  CLIENT_ID_HEADER = "X-Client-Id";
+    private static final Pattern CLIENT_ID        = Pattern.compile("[A-Za-z0-9_-]{8,64}");
+
+    public RouteController(RouteService routeService, RouteResultCache routeCache,
+                           HistoryWriter historyWriter) {
+        this.routeService  = routeService;
+        this.routeCache    = routeCache;
+        this.historyWriter = historyWriter;
     }
 
     // ── GET /api/stations?q=...&lat=...&lng=... ───────────────────────────────
     // (equivalent of GET /api/stations in stations.js)
     @GetMapping("/api/stations")
     public ResponseEntity<?> stations(
+            HttpServletRequest req,
             @RequestParam String q,
             @RequestParam(required = false) Double lat,
             @RequestParam(required = false) Double lng) {
@@ -37,9 +53,9 @@ public class RouteController {
             List<Map<String, Object>> results;
             if (lat != null && lng != null) {
                 results = routeService.autocompleteNearby(q.trim(),
-                          Map.of("lat", lat, "lng", lng));
+                          Map.of("lat", lat, "lng", lng), clientKey(req));
             } else {
-                results = routeService.autocomplete(q.trim());
+                results = routeService.autocomplete(q.trim(), clientKey(req));
             }
             return ResponseEntity.ok(Map.of("stations", results));
         } catch (Exception e) {
@@ -49,57 +65,151 @@ public class RouteController {
 
     // ── GET /api/routes/autocomplete?q=... ───────────────────────────────────
     @GetMapping("/api/routes/autocomplete")
-    public ResponseEntity<?> autocomplete(@RequestParam(required = false) String q) {
+    public ResponseEntity<?> autocomplete(HttpServletRequest req, @RequestParam(required = false) String q) {
         if (q == null || q.trim().length() < 2)
             return ResponseEntity.ok(Map.of("suggestions", List.of()));
         try {
-            return ResponseEntity.ok(Map.of("suggestions", routeService.autocomplete(q.trim())));
+            return ResponseEntity.ok(Map.of("suggestions", routeService.autocomplete(q.trim(), clientKey(req))));
         } catch (Exception e) {
             return ResponseEntity.ok(Map.of("suggestions", List.of()));
         }
     }
 
     // ── POST /api/routes/search ───────────────────────────────────────────────
+    // Served asynchronously: the Tomcat worker is released while upstream calls are in flight.
+    // ?geometry=full|polyline|packed&zoom=N selects the waypoint encoding (see RouteGeometry).
     @PostMapping("/api/routes/search")
-    public ResponseEntity<?> searchRoutes(HttpServletRequest req,
-                                          @Valid @RequestBody RouteSearchRequest body) {
+    public CompletableFuture<ResponseEntity<?>> searchRoutes(HttpServletRequest req,
+                                                             @Valid @RequestBody RouteSearchRequest body,
+                                                             @RequestParam(defaultValue = "full") String geometry,
+                                                             @RequestParam(required = false) Integer zoom) {
         String origin = body.getOrigin().trim();
         String dest   = body.getDestination().trim();
 
         if (origin.equalsIgnoreCase(dest))
-            return ResponseEntity.badRequest()
-                .body(Map.of("error", "Origin and destination cannot be the same."));
-
-        try {
-            List<Map<String, Object>> routes = routeService.generateRoutes(origin, dest);
-
-            // Save to history if authenticated
-            Object uid = req.getAttribute("userId");
-            if (uid != null && !routes.isEmpty()) {
-                Map<String, Object> best = routes.get(0);
-                RouteHistory h = new RouteHistory();
-                h.setUserId((Long) uid);
-                h.setOrigin(origin);
-                h.setDestination(dest);
-                h.setRouteName((String) best.get("name"));
-                h.setDistance((String) best.get("distance"));
-                h.setDuration((String) best.get("duration"));
-                h.setSafetyScore((Integer) best.get("safetyScore"));
-                historyRepo.save(h);
-            }
-
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                .body(Map.of("error", "Origin and destination cannot be the same.")));
+        if (!RouteGeometry.FORMATS.contains(geometry))
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                .body(Map.of("error", "geometry must be one of full, polyline, packed.")));
+
+        Object uid = req.getAttribute("userId");
+        return routeCache.search(origin, dest).<ResponseEntity<?>>thenApply(routes -> {
+            saveHistory(uid, origin, dest, routes);
             return ResponseEntity.ok(Map.of(
                 "success",     true,
                 "origin",      origin,
                 "destination", dest,
-                "routes",      routes
+                "routes",      withGeometry(routes, geometry, zoom)
             ));
-        } catch (Exception e) {
-            String msg = e.getMessage();
-            boolean userFacing = msg != null &&
-                (msg.contains("not find") || msg.contains("No drivable"));
-            return ResponseEntity.status(500)
-                .body(Map.of("error", userFacing ? msg : "Failed to generate routes."));
+        }).exceptionally(e -> ResponseEntity.status(cause(e) instanceof DroppedException ? 503 : 500)
+                                            .body(Map.of("error", searchError(e))));
+    }
+
+    // ── POST /api/routes/search/stream ────────────────────────────────────────
+    // Same search as Server-Sent Events: "endpoints", then "route" per deduplicated
+    // candidate as it arrives, "shops" per candidate, and finally "routes" (the same
+    // ranked list /search returns) or "error". Cache hits skip straight to "routes".
+    @PostMapping(value = "/api/routes/search/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter searchRoutesStream(HttpServletRequest req,
+                                         @Valid @RequestBody RouteSearchRequest body,
+                                         @RequestParam(defaultValue = "full") String geometry,
+                                         @RequestParam(required = false) Integer zoom) {
+        String origin = body.getOrigin().trim();
+        String dest   = body.getDestination().trim();
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MS);
+
+        if (origin.equalsIgnoreCase(dest)) {
+            send(emitter, "error", Map.of("error", "Origin and destination cannot be the same."));
+            emitter.complete();
+            return emitter;
+        }
+        if (!RouteGeometry.FORMATS.contains(geometry)) {
+            send(emitter, "error", Map.of("error", "geometry must be one of full, polyline, packed."));
+            emitter.complete();
+            return emitter;
+        }
+
+        Object uid = req.getAttribute("userId");
+        RouteListener listener = new RouteListener() {
+            @Override
+            public void onEndpoints(Map<String, Object> originGeo, Map<String, Object> destGeo) {
+                send(emitter, "endpoints", Map.of("origin", originGeo, "destination", destGeo));
+            }
+            @Override
+            public void onRoute(int candidate, RouteCandidate route) {
+                send(emitter, "route", route.withGeometry(geometry, zoom));
+            }
+            @Override
+            public void onShops(int candidate, List<Shop> shops) {
+                send(emitter, "shops", Map.of("candidate", candidate, "shops", shops, "totalShops", shops.size()));
+            }
+        };
+        routeCache.search(origin, dest, listener).whenComplete((routes, e) -> {
+            if (e != null) {
+                send(emitter, "error", Map.of("error", searchError(e)));
+            } else {
+                saveHistory(uid, origin, dest, routes);
+                send(emitter, "routes", Map.of(
+                    "success",     true,
+                    "origin",      origin,
+                    "destination", dest,
+                    "routes",      withGeometry(routes, geometry, zoom)
+                ));
+            }
+            emitter.complete();
+        });
+        return emitter;
+    }
+
+    // Identifies one typing client, so its newer keystrokes supersede its queued lookups:
+    // the signed-in user, else a per-tab X-Client-Id the frontend generates. Never the
+    // remote address, which a proxy or carrier NAT shares between many users; without
+    // either, lookups are not superseded.
+    private static String clientKey(HttpServletRequest req) {
+        Object uid = req.getAttribute("userId");
+        if (uid != null) return "user:" + uid;
+        String client = req.getHeader(CLIENT_ID_HEADER);
+        return client != null && CLIENT_ID.matcher(client).matches() ? "client:" + client : null;
+    }
+
+    // Queue a history entry if authenticated (written in the background)
+    private void saveHistory(Object uid, String origin, String dest, List<RouteResult> routes) {
+        if (uid == null || routes.isEmpty()) return;
+        RouteResult best = routes.get(0);
+        RouteHistory h = new RouteHistory();
+        h.setUserId((Long) uid);
+        h.setOrigin(origin);
+        h.setDestination(dest);
+        h.setRouteName(best.name());
+        h.setDistance(best.distanceText());
+        h.setDuration(best.durationText());
+        h.setSafetyScore(best.safety().score());
+        historyWriter.record(h);
+    }
+
+    private static List<RouteResult> withGeometry(List<RouteResult> routes, String format, Integer zoom) {
+        return routes.stream().map(r -> r.withGeometry(format, zoom)).toList();
+    }
+
+    private static String searchError(Throwable e) {
+        Throwable cause = cause(e);
+        if (cause instanceof DroppedException) return "Route search is busy. Please try again in a moment.";
+        String msg = cause.getMessage();
+        boolean userFacing = msg != null &&
+            (msg.contains("not find") || msg.contains("No drivable"));
+        return userFacing ? msg : "Failed to generate routes.";
+    }
+
+    private static Throwable cause(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+
+    // A client that went away only stops receiving; the search itself still completes and is cached.
+    private static void send(SseEmitter emitter, String event, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(event).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException ignored) {
         }
     }
 
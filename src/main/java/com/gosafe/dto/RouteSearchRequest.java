@@ -4,6 +4,11 @@ import lombok.Data;
 
 @Data
 public class RouteSearchRequest {
-    @NotBlank(message = "Origin required.") private String origin;
-    @NotBlank(message = "Destination required.") private String destination;
+    @NotBlank(message = "Origin required.")
+    @Size(max = 300, message = "Origin must be at most 300 characters.")
+    private String origin;
+
+    @NotBlank(message = "Destination required.")
+    @Size(max = 300, message = "Destination must be at most 300 characters.")
+    private String destination;
 }
@@ -0,0 +1,35 @@
+package com.gosafe.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A named shop / amenity node from OpenStreetMap, stored under its geohash tile.
+ * The id is the OSM node id; rows are written by PoiStore's upserts.
+ */
+@Entity
+@Table(name = "pois", indexes = @Index(name = "idx_pois_tile", columnList = "tile"))
+@Data
+@NoArgsConstructor
+public class Poi {
+
+    @Id
+    private Long id;
+
+    @Column(length = 12, nullable = false)
+    private String tile;
+
+    private double lat;
+
+    private double lng;
+
+    @Column(length = 200, nullable = false)
+    private String name;
+
+    @Column(length = 60)
+    private String category;   // raw OSM shop / amenity value
+
+    @Column(length = 300)
+    private String station;
+}
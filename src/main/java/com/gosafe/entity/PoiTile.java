@@ -0,0 +1,27 @@
+package com.gosafe.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/** A geohash cell whose POIs were fetched from Overpass at fetchedAt. */
+@Entity
+@Table(name = "poi_tiles")
+@Data
+@NoArgsConstructor
+public class PoiTile {
+
+    @Id
+    @Column(length = 12)
+    private String geohash;
+
+    @Column(name = "fetched_at", nullable = false)
+    private LocalDateTime fetchedAt;
+
+    public PoiTile(String geohash, LocalDateTime fetchedAt) {
+        this.geohash   = geohash;
+        this.fetchedAt = fetchedAt;
+    }
+}
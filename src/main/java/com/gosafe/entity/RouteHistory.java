@@ -8,7 +8,8 @@ import org.hibernate.annotations.CreationTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "route_history")
+@Table(name = "route_history",
+       indexes = @Index(name = "idx_route_history_user_time", columnList = "user_id, searched_at, id"))
 @Data
 @NoArgsConstructor
 public class RouteHistory {
@@ -29,9 +29,15 @@ public class SavedRoute {
     @Column(name = "route_name", length = 120)
     private String routeName;
 
+    // Legacy uncompressed JSON; new rows use routeDataGz
     @Column(name = "route_data", columnDefinition = "JSON")
     private String routeData;
 
+    // Gzip-compressed route JSON (waypoints compress ~10×)
+    @Lob
+    @Column(name = "route_data_gz", length = 16_777_215)
+    private byte[] routeDataGz;
+
     @Column(length = 100)
     private String label;
 
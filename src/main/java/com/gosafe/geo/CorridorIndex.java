@@ -0,0 +1,96 @@
+package com.gosafe.geo;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Uniform-grid index over the segments of one route polyline, answering
+ * "is this point within N metres of the route, and how far along is it?".
+ *
+ * Coordinates are projected to local metres (equirectangular around the
+ * route's mean latitude), which is accurate to well under 1% at city and
+ * intercity scale. Grid cells are N metres square; each segment is listed in
+ * every cell its N-metre buffer touches, so a query only inspects one cell.
+ */
+public final class CorridorIndex {
+
+    private static final double M_PER_DEG = 111_320d;
+
+    private final double   kx;        // metres per degree of longitude at refLat
+    private final double   radius;
+    private final double[] xs, ys;    // vertices in metres
+    private final double[] cum;       // distance along the route at each vertex
+    private final HashMap<Long, int[]> grid = new HashMap<>();  // cell → [count, seg, seg, ...]
+
+    /** @param latLng route vertices as {lat, lng} */
+    public CorridorIndex(List<double[]> latLng, double radiusMeters) {
+        int n = latLng.size();
+        double refLat = 0;
+        for (double[] p : latLng) refLat += p[0];
+        refLat = n == 0 ? 0 : refLat / n;
+
+        this.kx     = M_PER_DEG * Math.cos(Math.toRadians(refLat));
+        this.radius = radiusMeters;
+        this.xs     = new double[n];
+        this.ys     = new double[n];
+        this.cum    = new double[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = latLng.get(i)[1] * kx;
+            ys[i] = latLng.get(i)[0] * M_PER_DEG;
+            if (i > 0) cum[i] = cum[i - 1] + Math.hypot(xs[i] - xs[i - 1], ys[i] - ys[i - 1]);
+        }
+        for (int s = 0; s + 1 < n; s++) {
+            long cx0 = cell(Math.min(xs[s], xs[s + 1]) - radius), cx1 = cell(Math.max(xs[s], xs[s + 1]) + radius);
+            long cy0 = cell(Math.min(ys[s], ys[s + 1]) - radius), cy1 = cell(Math.max(ys[s], ys[s + 1]) + radius);
+            for (long cx = cx0; cx <= cx1; cx++)
+                for (long cy = cy0; cy <= cy1; cy++)
+                    add(key(cx, cy), s);
+        }
+    }
+
+    public double length() {
+        return cum.length == 0 ? 0 : cum[cum.length - 1];
+    }
+
+    /**
+     * Distance along the route (metres) of the point on it closest to (lat, lng),
+     * or NaN when the point is farther than the corridor radius.
+     */
+    public double along(double lat, double lng) {
+        double px = lng * kx, py = lat * M_PER_DEG;
+        int[] segs = grid.get(key(cell(px), cell(py)));
+        if (segs == null) return Double.NaN;
+
+        double best = radius * radius, bestAlong = Double.NaN;
+        for (int k = 1; k <= segs[0]; k++) {
+            int s = segs[k];
+            double ax = xs[s], ay = ys[s], dx = xs[s + 1] - ax, dy = ys[s + 1] - ay;
+            double len2 = dx * dx + dy * dy;
+            double t = len2 == 0 ? 0 : Math.max(0, Math.min(1, ((px - ax) * dx + (py - ay) * dy) / len2));
+            double ex = ax + t * dx - px, ey = ay + t * dy - py;
+            double d2 = ex * ex + ey * ey;
+            if (d2 <= best) {
+                best      = d2;
+                bestAlong = cum[s] + t * Math.sqrt(len2);
+            }
+        }
+        return bestAlong;
+    }
+
+    private long cell(double metres) {
+        return (long) Math.floor(metres / radius);
+    }
+
+    private static long key(long cx, long cy) {
+        return (cx << 32) ^ (cy & 0xffffffffL);
+    }
+
+    private void add(long key, int seg) {
+        int[] segs = grid.get(key);
+        if (segs == null) segs = new int[4];
+        else if (segs[0] + 1 == segs.length) segs = Arrays.copyOf(segs, segs.length * 2);
+        segs[++segs[0]] = seg;
+        grid.put(key, segs);
+    }
+}
@@ -0,0 +1,79 @@
+package com.gosafe.geo;
+
+import java.util.HashMap;
+
+/**
+ * Sparse grid of point coverage for one spatial layer (street lights, CCTV, ...).
+ *
+ * Each point adds its weight to every cell whose centre lies within the layer
+ * radius of it, so a lookup is a single cell read. Cells are radius / 2 on a
+ * side and stored in 64 × 64 float tiles, allocated only where there is data.
+ * Longitude is scaled by cos(refLat), fine for a region the size of India.
+ */
+public final class CoverageGrid {
+
+    private static final double M_PER_DEG = 111_320d;
+    private static final int    TILE_BITS = 6;
+    private static final int    TILE      = 1 << TILE_BITS;
+
+    private final double cellLat, cellLng, radius;
+    private final HashMap<Long, float[]> tiles = new HashMap<>();
+
+    public CoverageGrid(double radiusMeters, double refLat) {
+        this.radius  = radiusMeters;
+        double cellM = radiusMeters / 2;
+        this.cellLat = cellM / M_PER_DEG;
+        this.cellLng = cellM / (M_PER_DEG * Math.cos(Math.toRadians(refLat)));
+    }
+
+    public void add(double lat, double lng, float weight) {
+        int r0 = row(lat - radius / M_PER_DEG), r1 = row(lat + radius / M_PER_DEG);
+        double dLng = radius / M_PER_DEG * cellLng / cellLat;
+        int c0 = col(lng - dLng), c1 = col(lng + dLng);
+        double r2 = radius * radius;
+        for (int r = r0; r <= r1; r++) {
+            double dy = ((r + 0.5) * cellLat - lat) * M_PER_DEG;
+            for (int c = c0; c <= c1; c++) {
+                double dx = ((c + 0.5) * cellLng - lng) * M_PER_DEG * cellLat / cellLng;
+                if (dx * dx + dy * dy > r2) continue;
+                tiles.computeIfAbsent(tileKey(r, c), k -> new float[TILE * TILE])[slot(r, c)] += weight;
+            }
+        }
+    }
+
+    /**
+     * Mean of min(1, value) over the given points: the fraction of them covered by
+     * the layer, with partial credit for weights below 1.
+     */
+    public double coverage(double[] lat, double[] lng, int n) {
+        if (n == 0) return 0;
+        double sum = 0;
+        long    lastKey  = Long.MIN_VALUE;
+        float[] lastTile = null;
+        for (int i = 0; i < n; i++) {
+            int r = row(lat[i]), c = col(lng[i]);
+            long key = tileKey(r, c);
+            if (key != lastKey) {                   // consecutive samples mostly share a tile
+                lastKey  = key;
+                lastTile = tiles.get(key);
+            }
+            if (lastTile != null) sum += Math.min(1f, lastTile[slot(r, c)]);
+        }
+        return sum / n;
+    }
+
+    public int tileCount() {
+        return tiles.size();
+    }
+
+    private int row(double lat) { return (int) Math.floor(lat / cellLat); }
+    private int col(double lng) { return (int) Math.floor(lng / cellLng); }
+
+    private static long tileKey(int r, int c) {
+        return ((long) (r >> TILE_BITS) << 32) ^ ((c >> TILE_BITS) & 0xffffffffL);
+    }
+
+    private static int slot(int r, int c) {
+        return ((r & (TILE - 1)) << TILE_BITS) | (c & (TILE - 1));
+    }
+}
@@ -0,0 +1,131 @@
+package com.gosafe.geo;
+
+import java.util.*;
+
+/**
+ * Minimal geohash encoding, used to key map tiles.
+ * Boxes are {south, west, north, east} in degrees throughout.
+ */
+public final class Geohash {
+
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+    private Geohash() {}
+
+    public static String encode(double lat, double lng, int precision) {
+        double latLo = -90, latHi = 90, lngLo = -180, lngHi = 180;
+        StringBuilder sb = new StringBuilder(precision);
+        boolean evenBit = true;
+        int bit = 0, ch = 0;
+        while (sb.length() < precision) {
+            if (evenBit) {
+                double mid = (lngLo + lngHi) / 2;
+                if (lng >= mid) { ch = (ch << 1) | 1; lngLo = mid; } else { ch <<= 1; lngHi = mid; }
+            } else {
+                double mid = (latLo + latHi) / 2;
+                if (lat >= mid) { ch = (ch << 1) | 1; latLo = mid; } else { ch <<= 1; latHi = mid; }
+            }
+            evenBit = !evenBit;
+            if (++bit == 5) { sb.append(BASE32[ch]); bit = 0; ch = 0; }
+        }
+        return sb.toString();
+    }
+
+    /** Bounds of a single cell. */
+    public static double[] bounds(String hash) {
+        double latLo = -90, latHi = 90, lngLo = -180, lngHi = 180;
+        boolean evenBit = true;
+        for (char c : hash.toCharArray()) {
+            int v = indexOf(c);
+            for (int b = 4; b >= 0; b--) {
+                boolean on = ((v >> b) & 1) == 1;
+                if (evenBit) { double mid = (lngLo + lngHi) / 2; if (on) lngLo = mid; else lngHi = mid; }
+                else         { double mid = (latLo + latHi) / 2; if (on) latLo = mid; else latHi = mid; }
+                evenBit = !evenBit;
+            }
+        }
+        return new double[]{ latLo, lngLo, latHi, lngHi };
+    }
+
+    /** The 32 cells one precision level below hash. */
+    public static List<String> children(String hash) {
+        List<String> out = new ArrayList<>(BASE32.length);
+        for (char c : BASE32) out.add(hash + c);
+        return out;
+    }
+
+    /** All cells of the given precision that intersect the box. */
+    public static Set<String> covering(double[] box, int precision) {
+        double dLat = cellHeight(precision), dLng = cellWidth(precision);
+        long row0 = (long) Math.floor((box[0] + 90) / dLat),  row1 = (long) Math.floor((box[2] + 90) / dLat);
+        long col0 = (long) Math.floor((box[1] + 180) / dLng), col1 = (long) Math.floor((box[3] + 180) / dLng);
+        Set<String> cells = new LinkedHashSet<>();
+        for (long r = row0; r <= row1; r++)
+            for (long c = col0; c <= col1; c++)
+                cells.add(encode(Math.min(89.999999, (r + 0.5) * dLat - 90),
+                                 Math.min(179.999999, (c + 0.5) * dLng - 180), precision));
+        return cells;
+    }
+
+    /**
+     * Cells within bufferMeters of a polyline of {lat, lng} points. The line is
+     * sampled every ~1 km and each sample's buffered box is covered, so a long
+     * route touches a thin band of cells rather than its whole bounding box.
+     */
+    public static Set<String> alongPath(List<double[]> pts, double bufferMeters, int precision) {
+        final double step = 1000;
+        Set<String> cells = new LinkedHashSet<>();
+        if (pts.isEmpty()) return cells;
+        double[] last = pts.get(0);
+        coverPoint(cells, last, bufferMeters + step, precision);
+        for (int i = 1; i < pts.size(); i++) {
+            double[] cur = pts.get(i);
+            double d = metres(last, cur);
+            if (d < step && i < pts.size() - 1) continue;
+            int n = Math.max(1, (int) Math.ceil(d / step));
+            for (int k = 1; k <= n; k++)
+                coverPoint(cells, new double[]{ last[0] + (cur[0] - last[0]) * k / n,
+                                                 last[1] + (cur[1] - last[1]) * k / n },
+                           bufferMeters + step, precision);
+            last = cur;
+        }
+        return cells;
+    }
+
+    /**
+     * Merges cells into as few boxes as possible by joining horizontally
+     * adjacent cells of the same row.
+     */
+    public static List<double[]> runs(Collection<String> hashes) {
+        List<double[]> cells = new ArrayList<>();
+        for (String h : hashes) cells.add(bounds(h));
+        cells.sort(Comparator.<double[]>comparingDouble(b -> b[0]).thenComparingDouble(b -> b[1]));
+        List<double[]> out = new ArrayList<>();
+        double[] run = null;
+        for (double[] b : cells) {
+            if (run != null && run[0] == b[0] && Math.abs(run[3] - b[1]) < 1e-9) run[3] = b[3];
+            else { run = b.clone(); out.add(run); }
+        }
+        return out;
+    }
+
+    private static void coverPoint(Set<String> cells, double[] p, double metres, int precision) {
+        double dLat = metres / 111_320d;
+        double dLng = dLat / Math.max(0.01, Math.cos(Math.toRadians(p[0])));
+        cells.addAll(covering(new double[]{ p[0] - dLat, p[1] - dLng, p[0] + dLat, p[1] + dLng }, precision));
+    }
+
+    private static double metres(double[] a, double[] b) {
+        double dy = (b[0] - a[0]) * 111_320d;
+        double dx = (b[1] - a[1]) * 111_320d * Math.cos(Math.toRadians((a[0] + b[0]) / 2));
+        return Math.hypot(dx, dy);
+    }
+
+    public static double cellHeight(int precision) { return 180.0 / (1L << (5 * precision / 2)); }
+    public static double cellWidth(int precision)  { return 360.0 / (1L << ((5 * precision + 1) / 2)); }
+
+    private static int indexOf(char c) {
+        for (int i = 0; i < BASE32.length; i++) if (BASE32[i] == c) return i;
+        throw new IllegalArgumentException("Invalid geohash character: " + c);
+    }
+}
@@ -0,0 +1,289 @@
+package com.gosafe.geo;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Minimal reader for OpenStreetMap PBF extracts (the .osm.pbf files Geofabrik and
+ * planet.openstreetmap.org publish): nodes, plain and dense, and ways with their
+ * tags. Relations and metadata are skipped. Only zlib-compressed or raw blobs are
+ * supported, which is what the common tools write.
+ *
+ * Format: https://wiki.openstreetmap.org/wiki/PBF_Format
+ */
+final class OsmPbfReader {
+
+    interface NodeSink { void node(long id, int latE6, int lngE6); }
+
+    interface WaySink { void way(long id, long[] refs, Map<String, String> tags); }
+
+    private static final Set<String> SUPPORTED_FEATURES = Set.of("OsmSchema-V0.6", "DenseNodes");
+
+    private OsmPbfReader() {}
+
+    /** Streams every node to nodes and every way to ways; a null sink skips decoding that kind. */
+    static void read(Path file, NodeSink nodes, WaySink ways) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            while (true) {
+                int headerLength;
+                try { headerLength = in.readInt(); }
+                catch (EOFException e) { return; }
+
+                Proto header = new Proto(readFully(in, headerLength));
+                String type = null;
+                int    size = 0;
+                while (header.next()) {
+                    switch (header.field()) {
+                        case 1  -> type = header.string();
+                        case 3  -> size = (int) header.varint();
+                        default -> header.skip();
+                    }
+                }
+                byte[] blob = readFully(in, size);
+                if ("OSMHeader".equals(type))    checkFeatures(inflate(blob));
+                else if ("OSMData".equals(type)) block(inflate(blob), nodes, ways);
+            }
+        }
+    }
+
+    private static void checkFeatures(byte[] headerBlock) throws IOException {
+        Proto p = new Proto(headerBlock);
+        while (p.next()) {
+            if (p.field() != 4) { p.skip(); continue; }
+            String feature = p.string();
+            if (!SUPPORTED_FEATURES.contains(feature)) throw new IOException("Unsupported PBF feature " + feature);
+        }
+    }
+
+    // ─── PrimitiveBlock ───────────────────────────────────────────────────────
+    private static void block(byte[] data, NodeSink nodes, WaySink ways) {
+        Proto p = new Proto(data);
+        List<String> strings = new ArrayList<>();
+        List<Proto>  groups  = new ArrayList<>();
+        long granularity = 100, latOffset = 0, lngOffset = 0;
+        while (p.next()) {
+            switch (p.field()) {
+                case 1 -> {
+                    Proto table = p.message();
+                    while (table.next()) {
+                        if (table.field() == 1) strings.add(table.string());
+                        else table.skip();
+                    }
+                }
+                case 2  -> groups.add(p.message());
+                case 17 -> granularity = p.varint();
+                case 19 -> latOffset   = p.varint();
+                case 20 -> lngOffset   = p.varint();
+                default -> p.skip();
+            }
+        }
+        Coords coords = new Coords(granularity, latOffset, lngOffset);
+        for (Proto g : groups) {
+            while (g.next()) {
+                switch (g.field()) {
+                    case 1  -> { if (nodes != null) node(g.message(), coords, nodes); else g.skip(); }
+                    case 2  -> { if (nodes != null) denseNodes(g.message(), coords, nodes); else g.skip(); }
+                    case 3  -> { if (ways != null) way(g.message(), strings, ways); else g.skip(); }
+                    default -> g.skip();
+                }
+            }
+        }
+    }
+
+    private record Coords(long granularity, long latOffset, long lngOffset) {
+        // Nanodegrees to microdegrees
+        int lat(long raw) { return (int) Math.round((latOffset + granularity * raw) / 1000.0); }
+        int lng(long raw) { return (int) Math.round((lngOffset + granularity * raw) / 1000.0); }
+    }
+
+    private static void node(Proto p, Coords c, NodeSink sink) {
+        long id = 0, lat = 0, lng = 0;
+        while (p.next()) {
+            switch (p.field()) {
+                case 1  -> id  = p.sint();
+                case 8  -> lat = p.sint();
+                case 9  -> lng = p.sint();
+                default -> p.skip();
+            }
+        }
+        sink.node(id, c.lat(lat), c.lng(lng));
+    }
+
+    // Ids and coordinates are delta-coded
+    private static void denseNodes(Proto p, Coords c, NodeSink sink) {
+        long[] ids = null, lats = null, lngs = null;
+        while (p.next()) {
+            switch (p.field()) {
+                case 1  -> ids  = p.packedSint();
+                case 8  -> lats = p.packedSint();
+                case 9  -> lngs = p.packedSint();
+                default -> p.skip();
+            }
+        }
+        if (ids == null) return;
+        long id = 0, lat = 0, lng = 0;
+        for (int i = 0; i < ids.length; i++) {
+            id  += ids[i];
+            lat += lats[i];
+            lng += lngs[i];
+            sink.node(id, c.lat(lat), c.lng(lng));
+        }
+    }
+
+    private static void way(Proto p, List<String> strings, WaySink sink) {
+        long   id   = 0;
+        long[] keys = {}, vals = {}, refs = {};
+        while (p.next()) {
+            switch (p.field()) {
+                case 1  -> id   = p.varint();
+                case 2  -> keys = p.packedVarint();
+                case 3  -> vals = p.packedVarint();
+                case 8  -> refs = p.packedSint();
+                default -> p.skip();
+            }
+        }
+        for (int i = 1; i < refs.length; i++) refs[i] += refs[i - 1];
+        Map<String, String> tags = new HashMap<>(keys.length * 2);
+        for (int i = 0; i < keys.length; i++)
+            tags.put(strings.get((int) keys[i]), strings.get((int) vals[i]));
+        sink.way(id, refs, tags);
+    }
+
+    // ─── Blobs ────────────────────────────────────────────────────────────────
+    private static byte[] inflate(byte[] blob) throws IOException {
+        Proto p = new Proto(blob);
+        byte[] raw = null, zlib = null;
+        int rawSize = 0;
+        while (p.next()) {
+            switch (p.field()) {
+                case 1  -> raw     = p.bytes();
+                case 2  -> rawSize = (int) p.varint();
+                case 3  -> zlib    = p.bytes();
+                case 4, 5, 6, 7 -> throw new IOException("Unsupported PBF blob compression (field " + p.field() + ")");
+                default -> p.skip();
+            }
+        }
+        if (raw != null) return raw;
+        if (zlib == null) throw new IOException("Empty PBF blob");
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(zlib);
+            byte[] out = new byte[rawSize];
+            int n = 0;
+            while (n < rawSize && !inflater.finished()) {
+                int k = inflater.inflate(out, n, rawSize - n);
+                if (k == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    throw new IOException("Truncated PBF blob");
+                n += k;
+            }
+            return out;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt PBF blob", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static byte[] readFully(DataInputStream in, int length) throws IOException {
+        byte[] b = new byte[length];
+        in.readFully(b);
+        return b;
+    }
+
+    // ─── Protocol buffer wire format ──────────────────────────────────────────
+    private static final class Proto {
+        private final byte[] buf;
+        private final int    limit;
+        private int          pos;
+        private int          tag;
+
+        Proto(byte[] buf) { this(buf, 0, buf.length); }
+
+        Proto(byte[] buf, int from, int to) {
+            this.buf   = buf;
+            this.pos   = from;
+            this.limit = to;
+        }
+
+        boolean next() {
+            if (pos >= limit) return false;
+            tag = (int) varint();
+            return true;
+        }
+
+        int field() { return tag >>> 3; }
+
+        long varint() {
+            long v = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = buf[pos++];
+                v |= (long) (b & 0x7f) << shift;
+                if (b >= 0) return v;
+            }
+        }
+
+        long sint() {
+            long v = varint();
+            return (v >>> 1) ^ -(v & 1);
+        }
+
+        Proto message() {
+            int length = (int) varint();
+            Proto p = new Proto(buf, pos, pos + length);
+            pos += length;
+            return p;
+        }
+
+        byte[] bytes() {
+            int length = (int) varint();
+            byte[] b = Arrays.copyOfRange(buf, pos, pos + length);
+            pos += length;
+            return b;
+        }
+
+        String string() {
+            int length = (int) varint();
+            String s = new String(buf, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return s;
+        }
+
+        long[] packedVarint() {
+            if ((tag & 7) == 0) return new long[]{ varint() };
+            Proto p = message();
+            long[] out = new long[p.count()];
+            for (int i = 0; i < out.length; i++) out[i] = p.varint();
+            return out;
+        }
+
+        long[] packedSint() {
+            if ((tag & 7) == 0) return new long[]{ sint() };
+            Proto p = message();
+            long[] out = new long[p.count()];
+            for (int i = 0; i < out.length; i++) out[i] = p.sint();
+            return out;
+        }
+
+        // Number of varints left: every one ends in a byte with the high bit clear
+        private int count() {
+            int n = 0;
+            for (int i = pos; i < limit; i++) if (buf[i] >= 0) n++;
+            return n;
+        }
+
+        void skip() {
+            switch (tag & 7) {
+                case 0  -> varint();
+                case 1  -> pos += 8;
+                case 2  -> { int length = (int) varint(); pos += length; }
+                case 5  -> pos += 4;
+                default -> throw new IllegalStateException("Unsupported protobuf wire type " + (tag & 7));
+            }
+        }
+    }
+}
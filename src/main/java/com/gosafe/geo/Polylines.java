@@ -0,0 +1,134 @@
+package com.gosafe.geo;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Compact route geometry: Douglas-Peucker simplification and the Google
+ * encoded-polyline format (precision 5). Points are passed as parallel
+ * lat / lng arrays.
+ */
+public final class Polylines {
+
+    private Polylines() {}
+
+    /** Tolerance in degrees of half a 256-px web-mercator tile pixel at the given zoom. */
+    public static double toleranceForZoom(int zoom) {
+        return 360.0 / (256.0 * (1L << Math.max(0, Math.min(22, zoom)))) / 2;
+    }
+
+    /**
+     * Indices of the points kept by Douglas-Peucker with the given tolerance
+     * (degrees; longitude is scaled by cos(lat) so the tolerance is isotropic).
+     */
+    public static int[] simplify(double[] lat, double[] lng, double tolerance) {
+        int n = lat.length;
+        if (n <= 2 || tolerance <= 0) {
+            int[] all = new int[n];
+            for (int i = 0; i < n; i++) all[i] = i;
+            return all;
+        }
+        double mean = 0;
+        for (double v : lat) mean += v;
+        double kx = Math.cos(Math.toRadians(mean / n));
+        double tol2 = tolerance * tolerance;
+
+        boolean[] keep = new boolean[n];
+        keep[0] = keep[n - 1] = true;
+        ArrayDeque<int[]> stack = new ArrayDeque<>();
+        stack.push(new int[]{ 0, n - 1 });
+        while (!stack.isEmpty()) {
+            int[] span = stack.pop();
+            int a = span[0], b = span[1];
+            double ax = lng[a] * kx, ay = lat[a], dx = lng[b] * kx - ax, dy = lat[b] - ay;
+            double len2 = dx * dx + dy * dy;
+            int worst = -1;
+            double worstD2 = tol2;
+            for (int i = a + 1; i < b; i++) {
+                double px = lng[i] * kx - ax, py = lat[i] - ay;
+                double t  = len2 == 0 ? 0 : Math.max(0, Math.min(1, (px * dx + py * dy) / len2));
+                double ex = px - t * dx, ey = py - t * dy;
+                double d2 = ex * ex + ey * ey;
+                if (d2 > worstD2) { worstD2 = d2; worst = i; }
+            }
+            if (worst >= 0) {
+                keep[worst] = true;
+                stack.push(new int[]{ a, worst });
+                stack.push(new int[]{ worst, b });
+            }
+        }
+        int[] idx = new int[n];
+        int k = 0;
+        for (int i = 0; i < n; i++) if (keep[i]) idx[k++] = i;
+        return Arrays.copyOf(idx, k);
+    }
+
+    /** Google encoded polyline of the points at the given indices. */
+    public static String encode(double[] lat, double[] lng, int[] idx) {
+        StringBuilder sb = new StringBuilder(idx.length * 6);
+        long pLat = 0, pLng = 0;
+        for (int i : idx) {
+            long eLat = Math.round(lat[i] * 1e5), eLng = Math.round(lng[i] * 1e5);
+            encodeValue(sb, eLat - pLat);
+            encodeValue(sb, eLng - pLng);
+            pLat = eLat;
+            pLng = eLng;
+        }
+        return sb.toString();
+    }
+
+    /** Flat [lat, lng, lat, lng, ...] of the points at the given indices, rounded to 1e-5. */
+    public static double[] pack(double[] lat, double[] lng, int[] idx) {
+        double[] out = new double[idx.length * 2];
+        for (int k = 0; k < idx.length; k++) {
+            out[2 * k]     = Math.round(lat[idx[k]] * 1e5) / 1e5;
+            out[2 * k + 1] = Math.round(lng[idx[k]] * 1e5) / 1e5;
+        }
+        return out;
+    }
+
+    /**
+     * Points every spacingMeters along the line (plus its first and last point),
+     * as {lat[], lng[]}. Segment lengths use an equirectangular approximation.
+     */
+    public static double[][] resample(double[] lat, double[] lng, double spacingMeters) {
+        int n = lat.length;
+        if (n == 0) return new double[][]{ new double[0], new double[0] };
+        double ky = 111_320d, kx = Math.cos(Math.toRadians(lat[0])) * ky;
+        int cap = 64;
+        double[] outLat = new double[cap], outLng = new double[cap];
+        outLat[0] = lat[0];
+        outLng[0] = lng[0];
+        int k = 1;
+        double next = spacingMeters, walked = 0;
+        for (int i = 1; i < n; i++) {
+            double dx = (lng[i] - lng[i - 1]) * kx, dy = (lat[i] - lat[i - 1]) * ky;
+            double seg = Math.sqrt(dx * dx + dy * dy);
+            while (next <= walked + seg) {
+                if (k + 1 >= cap) {
+                    cap *= 2;
+                    outLat = Arrays.copyOf(outLat, cap);
+                    outLng = Arrays.copyOf(outLng, cap);
+                }
+                double t = (next - walked) / seg;
+                outLat[k] = lat[i - 1] + t * (lat[i] - lat[i - 1]);
+                outLng[k] = lng[i - 1] + t * (lng[i] - lng[i - 1]);
+                k++;
+                next += spacingMeters;
+            }
+            walked += seg;
+        }
+        outLat[k] = lat[n - 1];
+        outLng[k] = lng[n - 1];
+        return new double[][]{ Arrays.copyOf(outLat, k + 1), Arrays.copyOf(outLng, k + 1) };
+    }
+
+    private static void encodeValue(StringBuilder sb, long v) {
+        v = v < 0 ? ~(v << 1) : v << 1;
+        while (v >= 0x20) {
+            sb.append((char) ((0x20 | (v & 0x1f)) + 63));
+            v >>= 5;
+        }
+        sb.append((char) (v + 63));
+    }
+}
@@ -0,0 +1,201 @@
+package com.gosafe.geo;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Directed road network in compressed-sparse-row form, held in primitive arrays.
+ * Every vertex of the road geometry is a node, so a path's nodes are its polyline.
+ *
+ * File format (all integers 32-bit big-endian):
+ * <pre>
+ *   magic "GSRG" | version (1) | nodeCount N | edgeCount M | nameCount K
+ *   int[N]    node latitude,  degrees × 1e6
+ *   int[N]    node longitude, degrees × 1e6
+ *   int[N+1]  first outgoing edge of each node; edges of v are first[v] .. first[v+1]-1
+ *   int[M]    edge head node
+ *   int[M]    edge travel time, tenths of a second (> 0)
+ *   int[M]    edge length, decimetres (at least the straight-line distance between its nodes)
+ *   int[M]    edge road name, index into the name table or -1
+ *   K × (uint16 byte length, UTF-8 bytes)  road names
+ * </pre>
+ * Produced offline from an OSM extract by {@link RoadGraphBuilder}; the routing
+ * profile (speeds, one-ways, access) is baked into the travel times and edge directions.
+ */
+public final class RoadGraph {
+
+    public static final int MAGIC   = 0x47535247;   // "GSRG"
+    public static final int VERSION = 1;
+
+    static final double M_PER_DEG = 111_320d;
+    private static final double CELL_DEG  = 0.01;       // snapping grid, ~1.1 km
+
+    final int      n, m;
+    final int[]    latE6, lngE6;
+    final int[]    first, head, time, length, name;
+    final int[]    rFirst, rEdge;                       // incoming edges of v: rEdge[rFirst[v] .. rFirst[v+1]-1]
+    final int[]    tail;                                // tail node of every edge
+    final String[] names;
+    final double   maxSpeed;                            // m/s, upper bound over all edges
+
+    // Snapping grid: sorted cell ids, and nodes of cell i at cellNodes[cellStart[i] .. cellStart[i+1]-1]
+    private final int[] cellIds, cellStart, cellNodes;
+
+    public RoadGraph(int[] latE6, int[] lngE6, int[] first, int[] head,
+                     int[] time, int[] length, int[] name, String[] names) {
+        this.n      = latE6.length;
+        this.m      = head.length;
+        this.latE6  = latE6;
+        this.lngE6  = lngE6;
+        this.first  = first;
+        this.head   = head;
+        this.time   = time;
+        this.length = length;
+        this.name   = name;
+        this.names  = names;
+        if (lngE6.length != n || first.length != n + 1 || first[n] != m
+                || time.length != m || length.length != m || name.length != m)
+            throw new IllegalArgumentException("Inconsistent road graph arrays");
+
+        // Reverse adjacency for the backward search
+        this.tail   = new int[m];
+        this.rFirst = new int[n + 1];
+        this.rEdge  = new int[m];
+        double speed = 1;
+        for (int v = 0; v < n; v++)
+            for (int e = first[v]; e < first[v + 1]; e++) {
+                tail[e] = v;
+                rFirst[head[e] + 1]++;
+                speed = Math.max(speed, (double) length[e] / time[e]);
+            }
+        for (int v = 0; v < n; v++) rFirst[v + 1] += rFirst[v];
+        int[] fill = Arrays.copyOf(rFirst, n);
+        for (int e = 0; e < m; e++) rEdge[fill[head[e]]++] = e;
+        this.maxSpeed = speed;
+
+        // Grid of nodes that have at least one edge; packed as (cell << 32 | node) and sorted
+        long[] packed = new long[n];
+        int k = 0;
+        for (int v = 0; v < n; v++)
+            if (first[v + 1] > first[v] || rFirst[v + 1] > rFirst[v])
+                packed[k++] = ((long) cellId(lat(v), lng(v)) << 32) | v;
+        packed = Arrays.copyOf(packed, k);
+        Arrays.sort(packed);
+        this.cellNodes = new int[k];
+        int[] ids = new int[k], starts = new int[k + 1];
+        int cells = 0;
+        for (int i = 0; i < k; i++) {
+            int cell = (int) (packed[i] >>> 32);
+            if (cells == 0 || ids[cells - 1] != cell) { ids[cells] = cell; starts[cells++] = i; }
+            cellNodes[i] = (int) packed[i];
+        }
+        starts[cells] = k;
+        this.cellIds   = Arrays.copyOf(ids, cells);
+        this.cellStart = Arrays.copyOf(starts, cells + 1);
+    }
+
+    public int nodeCount() { return n; }
+    public int edgeCount() { return m; }
+
+    public double lat(int v) { return latE6[v] / 1e6; }
+    public double lng(int v) { return lngE6[v] / 1e6; }
+
+    /** Travel time of edge e in seconds. */
+    public double seconds(int e) { return time[e] / 10.0; }
+
+    /** Length of edge e in metres. */
+    public double meters(int e) { return length[e] / 10.0; }
+
+    /** Road name of edge e, or "" when unnamed. */
+    public String roadName(int e) { return name[e] < 0 ? "" : names[name[e]]; }
+
+    public int head(int e) { return head[e]; }
+
+    /** Nearest routable node within maxMeters of (lat, lng), or -1. */
+    public int nearestNode(double lat, double lng, double maxMeters) {
+        double kx       = M_PER_DEG * Math.cos(Math.toRadians(lat));
+        double cellMin  = CELL_DEG * Math.min(M_PER_DEG, kx);
+        int    row0     = row(lat), col0 = col(lng);
+        int    best     = -1;
+        double bestD2   = maxMeters * maxMeters;
+        int    maxRing  = (int) Math.ceil(maxMeters / cellMin) + 1;
+        for (int r = 0; r <= maxRing; r++) {
+            for (int dr = -r; dr <= r; dr++)
+                for (int dc = -r; dc <= r; dc++) {
+                    if (Math.max(Math.abs(dr), Math.abs(dc)) != r) continue;
+                    int i = Arrays.binarySearch(cellIds, cellId(row0 + dr, col0 + dc));
+                    if (i < 0) continue;
+                    for (int j = cellStart[i]; j < cellStart[i + 1]; j++) {
+                        int v = cellNodes[j];
+                        double dx = (lng(v) - lng) * kx, dy = (lat(v) - lat) * M_PER_DEG;
+                        double d2 = dx * dx + dy * dy;
+                        if (d2 < bestD2) { bestD2 = d2; best = v; }
+                    }
+                }
+            // Everything in ring r+1 and beyond is at least r cells away
+            if (best >= 0 && Math.sqrt(bestD2) <= r * cellMin) break;
+        }
+        return best;
+    }
+
+    private static int row(double lat) { return (int) Math.floor((lat + 90) / CELL_DEG); }
+    private static int col(double lng) { return (int) Math.floor((lng + 180) / CELL_DEG); }
+
+    private static int cellId(int row, int col) { return row * 36_001 + col; }
+
+    private static int cellId(double lat, double lng) { return cellId(row(lat), col(lng)); }
+
+    // ─── File I/O ─────────────────────────────────────────────────────────────
+    public static RoadGraph load(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()).order(ByteOrder.BIG_ENDIAN);
+            if (buf.getInt() != MAGIC) throw new IOException(file + " is not a road graph file");
+            int version = buf.getInt();
+            if (version != VERSION) throw new IOException("Unsupported road graph version " + version);
+            int n = buf.getInt(), m = buf.getInt(), k = buf.getInt();
+
+            int[] latE6 = ints(buf, n), lngE6 = ints(buf, n), first = ints(buf, n + 1);
+            int[] head  = ints(buf, m), time  = ints(buf, m), length = ints(buf, m), name = ints(buf, m);
+            String[] names = new String[k];
+            for (int i = 0; i < k; i++) {
+                byte[] b = new byte[buf.getShort() & 0xffff];
+                buf.get(b);
+                names[i] = new String(b, StandardCharsets.UTF_8);
+            }
+            return new RoadGraph(latE6, lngE6, first, head, time, length, name, names);
+        }
+    }
+
+    public void save(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(n);
+            out.writeInt(m);
+            out.writeInt(names.length);
+            for (int[] a : new int[][]{ latE6, lngE6, first, head, time, length, name })
+                for (int v : a) out.writeInt(v);
+            for (String s : names) {
+                byte[] b = s.getBytes(StandardCharsets.UTF_8);
+                out.writeShort(b.length);
+                out.write(b);
+            }
+        }
+    }
+
+    private static int[] ints(ByteBuffer buf, int count) {
+        int[] a = new int[count];
+        IntBuffer ib = buf.asIntBuffer();
+        ib.get(a);
+        buf.position(buf.position() + count * 4);
+        return a;
+    }
+}
@@ -0,0 +1,205 @@
+package com.gosafe.geo;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Builds a {@link RoadGraph} file from an OpenStreetMap PBF extract with a car profile:
+ * drivable highway types, one-way rules, access restrictions and speeds from maxspeed
+ * or a per-type default. Every way vertex becomes a node and every segment an edge.
+ *
+ * Run from the application jar:
+ * <pre>
+ *   java -Xmx8g -Dloader.main=com.gosafe.geo.RoadGraphBuilder \
+ *        -cp target/gosafe-backend-1.0.0.jar org.springframework.boot.loader.launch.PropertiesLauncher \
+ *        india-latest.osm.pbf data/road-graph.bin
+ * </pre>
+ * The extract is read twice: first the ways (collecting the node ids they use), then
+ * the coordinates of just those nodes. Memory grows with the number of way vertices;
+ * a country the size of India needs several GB of heap.
+ */
+public final class RoadGraphBuilder {
+
+    // Free-flow speeds in km/h where a way has no usable maxspeed
+    private static final Map<String, Integer> SPEED_KMH = Map.ofEntries(
+        Map.entry("motorway", 90),      Map.entry("motorway_link", 45),
+        Map.entry("trunk", 70),         Map.entry("trunk_link", 40),
+        Map.entry("primary", 55),       Map.entry("primary_link", 35),
+        Map.entry("secondary", 45),     Map.entry("secondary_link", 30),
+        Map.entry("tertiary", 35),      Map.entry("tertiary_link", 25),
+        Map.entry("unclassified", 30),  Map.entry("road", 25),
+        Map.entry("residential", 20),   Map.entry("service", 15),
+        Map.entry("living_street", 10));
+
+    private static final Set<String> NO_ACCESS  = Set.of("no", "private", "agricultural", "forestry", "delivery");
+    private static final Set<String> ROUNDABOUT = Set.of("roundabout", "circular");
+
+    private static final int FORWARD = 1, BACKWARD = 2, BOTH = FORWARD | BACKWARD;
+
+    private RoadGraphBuilder() {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("usage: RoadGraphBuilder <extract.osm.pbf> <road-graph.bin>");
+            System.exit(2);
+        }
+        long start = System.nanoTime();
+        RoadGraph graph = build(Path.of(args[0]));
+        graph.save(Path.of(args[1]));
+        System.out.printf("Wrote %s: %d nodes, %d edges in %d s%n", args[1],
+                          graph.nodeCount(), graph.edgeCount(), (System.nanoTime() - start) / 1_000_000_000);
+    }
+
+    public static RoadGraph build(Path pbf) throws IOException {
+        Ways ways = new Ways();
+        OsmPbfReader.read(pbf, null, ways::add);
+
+        long[] ids = ways.nodeIds();
+        int[] latE6 = new int[ids.length], lngE6 = new int[ids.length];
+        BitSet located = new BitSet(ids.length);
+        OsmPbfReader.read(pbf, (id, lat, lng) -> {
+            int i = Arrays.binarySearch(ids, id);
+            if (i < 0) return;
+            latE6[i] = lat;
+            lngE6[i] = lng;
+            located.set(i);
+        }, null);
+        return ways.toGraph(ids, latE6, lngE6, located);
+    }
+
+    // ─── Car profile ──────────────────────────────────────────────────────────
+    /** Directions a car may travel the way in (FORWARD / BACKWARD bits), 0 if not at all. */
+    static int directions(Map<String, String> tags) {
+        String highway = tags.get("highway");
+        if (highway == null || !SPEED_KMH.containsKey(highway) || "yes".equals(tags.get("area"))) return 0;
+        String car = tags.getOrDefault("motorcar", tags.get("motor_vehicle"));
+        if (car != null ? NO_ACCESS.contains(car) : NO_ACCESS.contains(tags.getOrDefault("access", ""))) return 0;
+
+        String oneway = tags.getOrDefault("oneway", "");
+        return switch (oneway) {
+            case "yes", "1", "true" -> FORWARD;
+            case "-1", "reverse"    -> BACKWARD;
+            case "no", "0", "false" -> BOTH;
+            default -> highway.equals("motorway") || ROUNDABOUT.contains(tags.getOrDefault("junction", ""))
+                       ? FORWARD : BOTH;
+        };
+    }
+
+    /** Travel speed in km/h: a plausible maxspeed, else the highway type's default. */
+    static double speedKmh(Map<String, String> tags) {
+        double fallback = SPEED_KMH.get(tags.get("highway"));
+        String max = tags.get("maxspeed");
+        if (max == null) return fallback;
+        String digits = max.replaceAll("[^0-9.].*$", "");
+        try {
+            double v = Double.parseDouble(digits);
+            if (max.contains("mph")) v *= 1.609;
+            return v >= 5 && v <= 140 ? v : fallback;
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    static String roadName(Map<String, String> tags) {
+        String name = tags.getOrDefault("name", tags.getOrDefault("ref", ""));
+        return name.length() > 200 ? name.substring(0, 200) : name;
+    }
+
+    // ─── Drivable ways, packed ────────────────────────────────────────────────
+    private static final class Ways {
+        private long[]  refs  = new long[1 << 20];
+        private int     refCount;
+        private int[]   start = new int[1 << 16], dirs = new int[1 << 16], name = new int[1 << 16];
+        private float[] speed = new float[1 << 16];
+        private int     count;
+        private final Map<String, Integer> names = new HashMap<>();
+        private final List<String>         nameList = new ArrayList<>();
+
+        void add(long id, long[] wayRefs, Map<String, String> tags) {
+            int d = directions(tags);
+            if (d == 0 || wayRefs.length < 2) return;
+            if (count + 1 >= start.length) {
+                int cap = start.length * 2;
+                start = Arrays.copyOf(start, cap);
+                dirs  = Arrays.copyOf(dirs, cap);
+                name  = Arrays.copyOf(name, cap);
+                speed = Arrays.copyOf(speed, cap);
+            }
+            if (refCount + wayRefs.length > refs.length)
+                refs = Arrays.copyOf(refs, Math.max(refs.length * 2, refCount + wayRefs.length));
+            System.arraycopy(wayRefs, 0, refs, refCount, wayRefs.length);
+            start[count] = refCount;
+            dirs[count]  = d;
+            speed[count] = (float) speedKmh(tags);
+            String n = roadName(tags);
+            name[count]  = n.isEmpty() ? -1 : names.computeIfAbsent(n, k -> { nameList.add(k); return nameList.size() - 1; });
+            refCount += wayRefs.length;
+            start[++count] = refCount;
+        }
+
+        /** Sorted, distinct ids of every node used by a drivable way. */
+        long[] nodeIds() {
+            long[] ids = Arrays.copyOf(refs, refCount);
+            Arrays.parallelSort(ids);
+            int k = 0;
+            for (int i = 0; i < ids.length; i++) if (k == 0 || ids[i] != ids[k - 1]) ids[k++] = ids[i];
+            return Arrays.copyOf(ids, k);
+        }
+
+        /** CSR arrays over the located nodes; segments touching a node without coordinates are dropped. */
+        RoadGraph toGraph(long[] ids, int[] latE6, int[] lngE6, BitSet located) {
+            int[] index = new int[ids.length];
+            int n = 0;
+            for (int i = 0; i < ids.length; i++) index[i] = located.get(i) ? n++ : -1;
+
+            // Pass 1 counts edges per tail node, pass 2 fills them in
+            int[] first = new int[n + 1];
+            forEachEdge(ids, index, latE6, lngE6, (w, a, b, dm) -> first[a + 1]++);
+            for (int v = 0; v < n; v++) first[v + 1] += first[v];
+            int m = first[n];
+            int[] head = new int[m], time = new int[m], length = new int[m], road = new int[m];
+            int[] fill = Arrays.copyOf(first, n);
+            forEachEdge(ids, index, latE6, lngE6, (w, a, b, dm) -> {
+                int e = fill[a]++;
+                head[e]   = b;
+                length[e] = dm;
+                time[e]   = Math.max(1, (int) Math.ceil(dm / (speed[w] / 3.6)));   // dm / (m/s) = tenths of a second
+                road[e]   = name[w];
+            });
+
+            int[] lat = new int[n], lng = new int[n];
+            for (int i = 0; i < ids.length; i++)
+                if (index[i] >= 0) { lat[index[i]] = latE6[i]; lng[index[i]] = lngE6[i]; }
+            return new RoadGraph(lat, lng, first, head, time, length, road, nameList.toArray(String[]::new));
+        }
+
+        private interface EdgeVisitor { void edge(int way, int tail, int head, int decimetres); }
+
+        private void forEachEdge(long[] ids, int[] index, int[] latE6, int[] lngE6, EdgeVisitor visit) {
+            for (int w = 0; w < count; w++) {
+                for (int r = start[w]; r + 1 < start[w + 1]; r++) {
+                    int i = Arrays.binarySearch(ids, refs[r]), j = Arrays.binarySearch(ids, refs[r + 1]);
+                    int a = index[i], b = index[j];
+                    if (a < 0 || b < 0 || a == b) continue;
+                    int dm = Math.max(1, (int) Math.ceil(10 * meters(latE6[i], lngE6[i], latE6[j], lngE6[j])));
+                    if ((dirs[w] & FORWARD) != 0)  visit.edge(w, a, b, dm);
+                    if ((dirs[w] & BACKWARD) != 0) visit.edge(w, b, a, dm);
+                }
+            }
+        }
+    }
+
+    // Haversine distance, but never below the planar distance RoadGraphSearch's A* bound measures
+    private static double meters(int lat1E6, int lng1E6, int lat2E6, int lng2E6) {
+        double lat1 = Math.toRadians(lat1E6 / 1e6), lat2 = Math.toRadians(lat2E6 / 1e6);
+        double dLat = lat2 - lat1, dLng = Math.toRadians((lng2E6 - lng1E6) / 1e6);
+        double h = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                 + Math.cos(lat1) * Math.cos(lat2) * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        double haversine = 2 * 6_371_008.8 * Math.asin(Math.min(1, Math.sqrt(h)));
+
+        double dy = (lat2E6 - lat1E6) / 1e6 * RoadGraph.M_PER_DEG;
+        double dx = (lng2E6 - lng1E6) / 1e6 * RoadGraph.M_PER_DEG * Math.cos(Math.min(Math.abs(lat1), Math.abs(lat2)));
+        return Math.max(haversine, Math.hypot(dx, dy));
+    }
+}
@@ -0,0 +1,210 @@
+package com.gosafe.geo;
+
+import java.util.Arrays;
+
+/**
+ * Bidirectional A* over a {@link RoadGraph}, minimising travel time.
+ *
+ * Both directions use the balanced potential p(v) = (h(v, t) - h(s, v)) / 2,
+ * where h is the straight-line distance at the graph's top speed, so they run
+ * plain bidirectional Dijkstra on the same reduced costs and may stop as soon
+ * as the two queue minima sum to the best meeting cost found. Distances are
+ * equirectangular with longitude scaled for 1° poleward of the endpoints,
+ * which keeps h a lower bound without per-node trigonometry.
+ *
+ * Edge weights can be temporarily scaled up with {@link #penalize}, which is
+ * how alternative routes are found; raising weights keeps the potential valid.
+ *
+ * Holds O(nodes) working arrays that are reused between queries (reset by a
+ * stamp, not cleared), so an instance is not thread-safe; keep one per thread
+ * or pool them.
+ */
+public final class RoadGraphSearch {
+
+    /** A found path: node sequence and the edges between consecutive nodes. */
+    public record Path(int[] nodes, int[] edges) {}
+
+    private final RoadGraph g;
+
+    // Per-node state, valid only where stamp[v] == current
+    private final int[]   stamp;
+    private final float[] distF, distR, pot;
+    private final int[]   edgeF, edgeR;        // edge used to reach v forward / to leave v toward t (-1 at s / t)
+    private final byte[]  settled;             // bit 1 = forward, bit 2 = backward
+    private int current;
+
+    // Query constants for the potential
+    private double kx, sx, sy, tx, ty, vInv;
+
+    private final Heap heapF = new Heap(), heapR = new Heap();
+
+    // Per-edge weight multipliers, allocated on first use; penalized lists the edges != 1
+    private float[] factor;
+    private int[]   penalized = new int[256];
+    private int     penalizedCount;
+
+    public RoadGraphSearch(RoadGraph g) {
+        this.g       = g;
+        this.stamp   = new int[g.n];
+        this.distF   = new float[g.n];
+        this.distR   = new float[g.n];
+        this.pot     = new float[g.n];
+        this.edgeF   = new int[g.n];
+        this.edgeR   = new int[g.n];
+        this.settled = new byte[g.n];
+    }
+
+    /** Fastest path from s to t, or null when t is unreachable. */
+    public Path route(int s, int t) {
+        if (s == t) return new Path(new int[]{ s }, new int[0]);
+        if (++current == Integer.MAX_VALUE) { Arrays.fill(stamp, 0); current = 1; }
+        heapF.clear();
+        heapR.clear();
+        double maxLat = Math.min(89, Math.max(Math.abs(g.lat(s)), Math.abs(g.lat(t))) + 1);
+        kx   = Math.cos(Math.toRadians(maxLat));
+        sx   = g.lngE6[s] * kx; sy = g.latE6[s];
+        tx   = g.lngE6[t] * kx; ty = g.latE6[t];
+        vInv = 0.999 * RoadGraph.M_PER_DEG / 1e6 / g.maxSpeed;     // E6 degrees → seconds at top speed
+
+        touch(s);
+        touch(t);
+        distF[s] = 0; edgeF[s] = -1;
+        distR[t] = 0; edgeR[t] = -1;
+        heapF.push(pot[s], s);
+        heapR.push(-pot[t], t);
+
+        double best = Double.POSITIVE_INFINITY;
+        int meet = -1;
+        while (!heapF.isEmpty() && !heapR.isEmpty()) {
+            if (heapF.topKey() + heapR.topKey() >= best) break;
+            boolean forward = heapF.topKey() <= heapR.topKey();
+            Heap heap = forward ? heapF : heapR;
+            int u = heap.pop();
+            int bit = forward ? 1 : 2;
+            if ((settled[u] & bit) != 0) continue;                  // stale entry
+            settled[u] |= bit;
+
+            if (forward) {
+                for (int e = g.first[u]; e < g.first[u + 1]; e++) {
+                    int v = g.head[e];
+                    float d = distF[u] + weight(e);
+                    touch(v);
+                    if (d >= distF[v]) continue;
+                    distF[v] = d;
+                    edgeF[v] = e;
+                    heapF.push(d + pot[v], v);
+                    if (d + distR[v] < best) { best = d + distR[v]; meet = v; }
+                }
+            } else {
+                for (int i = g.rFirst[u]; i < g.rFirst[u + 1]; i++) {
+                    int e = g.rEdge[i], v = g.tail[e];
+                    float d = distR[u] + weight(e);
+                    touch(v);
+                    if (d >= distR[v]) continue;
+                    distR[v] = d;
+                    edgeR[v] = e;
+                    heapR.push(d - pot[v], v);
+                    if (d + distF[v] < best) { best = d + distF[v]; meet = v; }
+                }
+            }
+        }
+        return meet < 0 ? null : path(s, t, meet);
+    }
+
+    /** Multiplies the weight of the given edges by f (> 1) for later queries. */
+    public void penalize(int[] edges, float f) {
+        if (factor == null) {
+            factor = new float[g.m];
+            Arrays.fill(factor, 1f);
+        }
+        for (int e : edges) {
+            if (factor[e] == 1f) {
+                if (penalizedCount == penalized.length) penalized = Arrays.copyOf(penalized, penalizedCount * 2);
+                penalized[penalizedCount++] = e;
+            }
+            factor[e] *= f;
+        }
+    }
+
+    /** Restores all edge weights. */
+    public void clearPenalties() {
+        for (int i = 0; i < penalizedCount; i++) factor[penalized[i]] = 1f;
+        penalizedCount = 0;
+    }
+
+    private float weight(int e) {
+        float w = g.time[e] / 10f;
+        return penalizedCount == 0 ? w : w * factor[e];
+    }
+
+    /** Initialises v's state the first time this query reaches it. */
+    private void touch(int v) {
+        if (stamp[v] == current) return;
+        stamp[v]   = current;
+        settled[v] = 0;
+        distF[v]   = Float.POSITIVE_INFINITY;
+        distR[v]   = Float.POSITIVE_INFINITY;
+        double x = g.lngE6[v] * kx, y = g.latE6[v];
+        pot[v]     = (float) ((Math.hypot(x - tx, y - ty) - Math.hypot(x - sx, y - sy)) * vInv / 2);
+    }
+
+    private Path path(int s, int t, int meet) {
+        int count = 0;
+        for (int v = meet; v != s; v = g.tail[edgeF[v]]) count++;
+        for (int v = meet; v != t; v = g.head[edgeR[v]]) count++;
+        int[] edges = new int[count];
+        int i = 0;
+        for (int v = meet; v != s; v = g.tail[edgeF[v]]) edges[i++] = edgeF[v];
+        reverse(edges, i);
+        for (int v = meet; v != t; v = g.head[edgeR[v]]) edges[i++] = edgeR[v];
+
+        int[] nodes = new int[count + 1];
+        nodes[0] = s;
+        for (int k = 0; k < count; k++) nodes[k + 1] = g.head[edges[k]];
+        return new Path(nodes, edges);
+    }
+
+    private static void reverse(int[] a, int len) {
+        for (int i = 0, j = len - 1; i < j; i++, j--) { int x = a[i]; a[i] = a[j]; a[j] = x; }
+    }
+
+    // ─── Binary min-heap of (key, node) with lazy deletion ────────────────────
+    private static final class Heap {
+        private double[] keys  = new double[256];
+        private int[]    nodes = new int[256];
+        private int      size;
+
+        void clear()        { size = 0; }
+        boolean isEmpty()   { return size == 0; }
+        double topKey()     { return keys[0]; }
+
+        void push(double key, int node) {
+            if (size == keys.length) {
+                keys  = Arrays.copyOf(keys, size * 2);
+                nodes = Arrays.copyOf(nodes, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int p = (i - 1) >>> 1;
+                if (keys[p] <= key) break;
+                keys[i] = keys[p]; nodes[i] = nodes[p]; i = p;
+            }
+            keys[i] = key; nodes[i] = node;
+        }
+
+        int pop() {
+            int top = nodes[0];
+            double key = keys[--size];
+            int node = nodes[size], i = 0;
+            while (true) {
+                int c = 2 * i + 1;
+                if (c >= size) break;
+                if (c + 1 < size && keys[c + 1] < keys[c]) c++;
+                if (keys[c] >= key) break;
+                keys[i] = keys[c]; nodes[i] = nodes[c]; i = c;
+            }
+            keys[i] = key; nodes[i] = node;
+            return top;
+        }
+    }
+}
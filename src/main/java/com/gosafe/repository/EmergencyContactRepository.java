@@ -2,10 +2,18 @@ package com.gosafe.repository;
 
 import com.gosafe.entity.EmergencyContact;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
 import java.util.List;
 
 public interface EmergencyContactRepository extends JpaRepository<EmergencyContact, Long> {
     List<EmergencyContact> findByUserIdOrderByIdAsc(Long userId);
-    long countByUserId(Long userId);
-    void deleteByIdAndUserId(Long id, Long userId);
+
+    @Transactional
+    @Modifying
+    @Query("delete from EmergencyContact c where c.id = :id and c.userId = :uid")
+    int deleteByIdAndUserId(@Param("id") Long id, @Param("uid") Long userId);
 }
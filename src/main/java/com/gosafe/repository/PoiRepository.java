@@ -0,0 +1,18 @@
+package com.gosafe.repository;
+
+import com.gosafe.entity.Poi;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface PoiRepository extends JpaRepository<Poi, Long> {
+    List<Poi> findByTileIn(Collection<String> tiles);
+
+    @Modifying
+    @Query("delete from Poi p where p.tile in :tiles")
+    void deleteByTileIn(@Param("tiles") Collection<String> tiles);
+}
@@ -0,0 +1,7 @@
+package com.gosafe.repository;
+
+import com.gosafe.entity.PoiTile;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface PoiTileRepository extends JpaRepository<PoiTile, String> {
+}
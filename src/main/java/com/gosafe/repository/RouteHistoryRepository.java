@@ -1,9 +1,31 @@
 package com.gosafe.repository;
 
 import com.gosafe.entity.RouteHistory;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
 import java.util.List;
 
+/**
+ * History pages are keyset-paginated on (searched_at, id), newest first, so
+ * every page is a range scan of idx_route_history_user_time.
+ */
 public interface RouteHistoryRepository extends JpaRepository<RouteHistory, Long> {
-    List<RouteHistory> findTop20ByUserIdOrderBySearchedAtDesc(Long userId);
+
+    String SUMMARY = "select h.id as id, h.origin as origin, h.destination as destination, " +
+                     "h.routeName as routeName, h.distance as distance, h.duration as duration, " +
+                     "h.safetyScore as safetyScore, h.searchedAt as searchedAt from RouteHistory h ";
+
+    @Query(SUMMARY + "where h.userId = :uid order by h.searchedAt desc, h.id desc")
+    List<RouteHistorySummary> findLatest(@Param("uid") Long userId, Pageable limit);
+
+    @Query(SUMMARY + "where h.userId = :uid and (h.searchedAt < :at or (h.searchedAt = :at and h.id < :id)) " +
+                     "order by h.searchedAt desc, h.id desc")
+    List<RouteHistorySummary> findBefore(@Param("uid") Long userId,
+                                         @Param("at") LocalDateTime searchedAt,
+                                         @Param("id") Long id,
+                                         Pageable limit);
 }
@@ -0,0 +1,15 @@
+package com.gosafe.repository;
+
+import java.time.LocalDateTime;
+
+/** Columns of a route history row shown in the history list. */
+public interface RouteHistorySummary {
+    Long getId();
+    String getOrigin();
+    String getDestination();
+    String getRouteName();
+    String getDistance();
+    String getDuration();
+    Integer getSafetyScore();
+    LocalDateTime getSearchedAt();
+}
@@ -2,10 +2,20 @@ package com.gosafe.repository;
 
 import com.gosafe.entity.SavedRoute;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
 import java.util.List;
 import java.util.Optional;
 
 public interface SavedRouteRepository extends JpaRepository<SavedRoute, Long> {
-    List<SavedRoute> findByUserIdOrderBySavedAtDesc(Long userId);
+    List<SavedRouteSummary> findByUserIdOrderBySavedAtDesc(Long userId);
     Optional<SavedRoute> findByIdAndUserId(Long id, Long userId);
+
+    @Transactional
+    @Modifying
+    @Query("delete from SavedRoute s where s.id = :id and s.userId = :uid")
+    int deleteByIdAndUserId(@Param("id") Long id, @Param("uid") Long userId);
 }
@@ -0,0 +1,13 @@
+package com.gosafe.repository;
+
+import java.time.LocalDateTime;
+
+/** A saved route without its route data, for the saved routes list. */
+public interface SavedRouteSummary {
+    Long getId();
+    String getOrigin();
+    String getDestination();
+    String getRouteName();
+    String getLabel();
+    LocalDateTime getSavedAt();
+}
@@ -2,9 +2,19 @@ package com.gosafe.repository;
 
 import com.gosafe.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     boolean existsByEmail(String email);
+
+    @Transactional
+    @Modifying
+    @Query("update User u set u.avatarUrl = :url, u.updatedAt = CURRENT_TIMESTAMP where u.id = :id and u.avatarUrl = :expected")
+    int replaceAvatarUrl(@Param("id") Long id, @Param("expected") String expected, @Param("url") String url);
 }
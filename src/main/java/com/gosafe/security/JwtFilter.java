@@ -1,5 +1,7 @@
 package com.gosafe.security;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -8,20 +10,32 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Reads "Authorization: Bearer <token>" header, validates it,
  * and stores the userId as a request attribute for controllers to read.
  *
  * Equivalent of Node's requireAuth / optionalAuth middleware.
+ * Static /uploads/** files are public and skip the filter entirely.
+ * Time spent is published as gosafe.auth.filter{result=user|anonymous|invalid}.
  */
 @Component
 public class JwtFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
+    private final Timer   userTimer, anonymousTimer, invalidTimer;
 
-    public JwtFilter(JwtUtil jwtUtil) {
-        this.jwtUtil = jwtUtil;
+    public JwtFilter(JwtUtil jwtUtil, MeterRegistry registry) {
+        this.jwtUtil        = jwtUtil;
+        this.userTimer      = registry.timer("gosafe.auth.filter", "result", "user");
+        this.anonymousTimer = registry.timer("gosafe.auth.filter", "result", "anonymous");
+        this.invalidTimer   = registry.timer("gosafe.auth.filter", "result", "invalid");
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith(request.getContextPath() + "/uploads/");
     }
 
     @Override
@@ -30,15 +44,21 @@ public class JwtFilter extends OncePerRequestFilter {
                                     FilterChain chain)
             throws ServletException, IOException {
 
+        long start = System.nanoTime();
         String header = request.getHeader("Authorization");
+        Timer timer = anonymousTimer;
 
         if (header != null && header.startsWith("Bearer ")) {
-            String token = header.substring(7);
-            if (jwtUtil.isValid(token)) {
+            Long userId = jwtUtil.verifiedUserId(header.substring(7));
+            if (userId != null) {
                 // Store userId on the request so controllers can read it
-                request.setAttribute("userId", jwtUtil.getUserId(token));
+                request.setAttribute("userId", userId);
+                timer = userTimer;
+            } else {
+                timer = invalidTimer;
             }
         }
+        timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
 
         chain.doFilter(request, response);
     }
@@ -1,12 +1,19 @@
 package com.gosafe.security;
 
+import com.gosafe.cache.TtlCache;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
 import java.util.Date;
 
 @Component
@@ -18,11 +25,30 @@ public class JwtUtil {
     @Value("${gosafe.jwt.expiration}")
     private long expiration;   // milliseconds — 604800000 = 7 days
 
-    private SecretKey key() {
+    @Value("${gosafe.jwt.cache.max-size}")
+    private int cacheSize;
+
+    private final MeterRegistry registry;
+
+    // Built once from the secret
+    private SecretKey key;
+    private JwtParser parser;
+
+    // SHA-256(token) → userId of tokens already verified, kept until each token expires
+    private TtlCache<String, Long> verified;
+
+    public JwtUtil(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @PostConstruct
+    void init() {
         // Pad secret to at least 64 bytes for HS512
         String padded = secret;
         while (padded.getBytes(StandardCharsets.UTF_8).length < 64) padded += secret;
-        return Keys.hmacShaKeyFor(padded.getBytes(StandardCharsets.UTF_8));
+        this.key      = Keys.hmacShaKeyFor(padded.getBytes(StandardCharsets.UTF_8));
+        this.parser   = Jwts.parser().verifyWith(key).build();
+        this.verified = new TtlCache<String, Long>(cacheSize, Duration.ofMillis(expiration)).bindTo(registry, "jwt");
     }
 
     /** Generate token — payload: { id, email, name } */
@@ -33,10 +59,30 @@ public class JwtUtil {
                 .claim("name", name)
                 .issuedAt(new Date())
                 .expiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(key())
+                .signWith(key)
                 .compact();
     }
 
+    /**
+     * userId of a valid token, or null if it is invalid or expired. A token is
+     * verified once; later calls are answered from the cache until it expires.
+     */
+    public Long verifiedUserId(String token) {
+        String hash = sha256(token);
+        Long cached = verified.get(hash);
+        if (cached != null) return cached;
+        try {
+            Claims claims = getClaims(token);
+            Long userId   = Long.parseLong(claims.getSubject());
+            long ttl      = claims.getExpiration() == null ? expiration
+                            : claims.getExpiration().getTime() - System.currentTimeMillis();
+            verified.put(hash, userId, Duration.ofMillis(Math.min(ttl, expiration)));
+            return userId;
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
     /** Extract userId from token */
     public Long getUserId(String token) {
         return Long.parseLong(getClaims(token).getSubject());
@@ -44,15 +90,19 @@ public class JwtUtil {
 
     /** Validate and return claims — throws JwtException if invalid/expired */
     public Claims getClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(key())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        return parser.parseSignedClaims(token).getPayload();
     }
 
     public boolean isValid(String token) {
-        try { getClaims(token); return true; }
-        catch (JwtException | IllegalArgumentException e) { return false; }
+        return verifiedUserId(token) != null;
+    }
+
+    private static String sha256(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
 }
@@ -0,0 +1,85 @@
+package com.gosafe.service;
+
+import com.gosafe.cache.TtlCache;
+import com.gosafe.entity.EmergencyContact;
+import com.gosafe.entity.User;
+import com.gosafe.repository.EmergencyContactRepository;
+import com.gosafe.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Read-through cache of users and their emergency contacts, keyed by user id.
+ *
+ * Writes go through this class so each one evicts exactly the entry it changed,
+ * after the change is committed. Cached values are shared: callers must not
+ * modify them, but load a fresh copy from the repository to update. A read racing
+ * a write can re-cache the old row, so gosafe.account-cache.ttl bounds staleness.
+ */
+@Service
+public class AccountCache {
+
+    private final UserRepository             userRepo;
+    private final EmergencyContactRepository contactRepo;
+
+    private final TtlCache<Long, User>                   users;
+    private final TtlCache<Long, List<EmergencyContact>> contacts;
+
+    public AccountCache(UserRepository userRepo,
+                        EmergencyContactRepository contactRepo,
+                        MeterRegistry registry,
+                        @Value("${gosafe.account-cache.max-size}") int maxSize,
+                        @Value("${gosafe.account-cache.ttl}") Duration ttl) {
+        this.userRepo    = userRepo;
+        this.contactRepo = contactRepo;
+        this.users       = new TtlCache<Long, User>(maxSize, ttl).bindTo(registry, "users");
+        this.contacts    = new TtlCache<Long, List<EmergencyContact>>(maxSize, ttl).bindTo(registry, "contacts");
+    }
+
+    // ─── Users ────────────────────────────────────────────────────────────────
+    public Optional<User> user(Long id) {
+        User u = users.get(id);
+        if (u != null) return Optional.of(u);
+        Optional<User> found = userRepo.findById(id);
+        found.ifPresent(v -> users.put(id, v));
+        return found;
+    }
+
+    public User saveUser(User u) {
+        User saved = userRepo.save(u);
+        users.invalidate(saved.getId());
+        return saved;
+    }
+
+    /** Sets the user's avatar URL only if it is still expected; true when updated. */
+    public boolean replaceAvatar(Long id, String expected, String url) {
+        boolean updated = userRepo.replaceAvatarUrl(id, expected, url) > 0;
+        users.invalidate(id);
+        return updated;
+    }
+
+    // ─── Emergency contacts ───────────────────────────────────────────────────
+    public List<EmergencyContact> contacts(Long userId) {
+        List<EmergencyContact> list = contacts.get(userId);
+        if (list != null) return list;
+        list = List.copyOf(contactRepo.findByUserIdOrderByIdAsc(userId));
+        contacts.put(userId, list);
+        return list;
+    }
+
+    public EmergencyContact saveContact(EmergencyContact c) {
+        EmergencyContact saved = contactRepo.save(c);
+        contacts.invalidate(saved.getUserId());
+        return saved;
+    }
+
+    public void deleteContact(Long id, Long userId) {
+        contactRepo.deleteByIdAndUserId(id, userId);
+        contacts.invalidate(userId);
+    }
+}
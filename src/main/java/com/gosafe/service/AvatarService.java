@@ -0,0 +1,204 @@
+package com.gosafe.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.*;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Avatar uploads: stored under their content hash and downscaled in the background.
+ *
+ * The upload is streamed to disk while hashed (never held in memory) and
+ * renamed to avatars/{sha256}.{ext}; identical uploads share one file. A worker
+ * on avatarExecutor then writes square thumbnails avatars/{sha256}-{size}.jpg
+ * (or .png when the image has transparency) for each of gosafe.avatar.sizes and
+ * points the user at the largest one, unless the avatar changed meanwhile.
+ * Names never change content, so StaticResourceConfig serves them as immutable.
+ * Images ImageIO cannot decode (e.g. WebP) keep the original.
+ */
+@Service
+public class AvatarService {
+
+    private static final Logger log = LoggerFactory.getLogger(AvatarService.class);
+
+    public static final String DIR = "avatars";
+
+    private static final Map<String, String> EXT = Map.of(
+        "image/jpeg", "jpg", "image/png", "png", "image/gif", "gif", "image/webp", "webp");
+
+    private final Path                   dir;
+    private final ThreadPoolTaskExecutor pool;
+    private final AccountCache           accounts;
+    private final List<Integer>          sizes;
+    private final long                   maxPixels;
+
+    private final Timer   thumbTimer;
+    private final Counter skipped;
+
+    public AvatarService(@Qualifier("avatarExecutor") ThreadPoolTaskExecutor pool,
+                         AccountCache accounts,
+                         MeterRegistry registry,
+                         @Value("${gosafe.upload.dir}") Path uploadDir,
+                         @Value("${gosafe.avatar.sizes}") List<Integer> sizes,
+                         @Value("${gosafe.avatar.max-pixels}") long maxPixels) {
+        this.dir        = uploadDir.toAbsolutePath().resolve(DIR);
+        this.pool       = pool;
+        this.accounts   = accounts;
+        this.sizes      = sizes.stream().sorted().toList();
+        this.maxPixels  = maxPixels;
+        this.thumbTimer = registry.timer("gosafe.avatar.thumbnails");
+        this.skipped    = registry.counter("gosafe.avatar.skipped");
+    }
+
+    /** Stores the upload and returns its URL; thumbnails follow asynchronously via {@link #thumbnail}. */
+    public String store(MultipartFile avatar) throws IOException {
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, "upload-", ".tmp");
+        try {
+            MessageDigest sha = sha256();
+            try (InputStream in = new DigestInputStream(avatar.getInputStream(), sha);
+                 OutputStream out = Files.newOutputStream(tmp)) {
+                in.transferTo(out);
+            }
+            String name = HexFormat.of().formatHex(sha.digest()) + "." + extension(avatar);
+            Path target = dir.resolve(name);
+            if (Files.exists(target)) Files.delete(tmp);
+            else Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+            return url(name);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /** Queues thumbnailing of a stored avatar for the user; keeps the original if the pool is full. */
+    public void thumbnail(Long userId, String originalUrl) {
+        try {
+            pool.execute(() -> thumbTimer.record(() -> thumbnailNow(userId, originalUrl)));
+        } catch (TaskRejectedException e) {
+            skipped.increment();
+            log.warn("Avatar thumbnail queue full; user {} keeps the original", userId);
+        }
+    }
+
+    private void thumbnailNow(Long userId, String originalUrl) {
+        String name = originalUrl.substring(originalUrl.lastIndexOf('/') + 1);
+        String hash = name.substring(0, name.indexOf('.'));
+        Path   file = dir.resolve(name);
+        try {
+            BufferedImage img = read(file);
+            if (img == null) {
+                skipped.increment();
+                return;
+            }
+            boolean alpha = img.getColorModel().hasAlpha();
+            String  ext   = alpha ? "png" : "jpg";
+            String  last  = null;
+            for (int size : sizes) {
+                String thumb = hash + "-" + size + "." + ext;
+                Path   out   = dir.resolve(thumb);
+                if (!Files.exists(out)) write(square(img, size, alpha), ext, out);
+                last = thumb;
+            }
+            if (last != null) accounts.replaceAvatar(userId, originalUrl, url(last));
+        } catch (IOException | RuntimeException e) {
+            skipped.increment();
+            log.warn("Could not thumbnail avatar {}: {}", name, e.toString());
+        }
+    }
+
+    // Decodes the image, or null when unsupported or larger than gosafe.avatar.max-pixels
+    private BufferedImage read(Path file) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) return null;
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > maxPixels) return null;
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Centre crop to a square, then halve with bilinear filtering down to size (keeps quality at large ratios)
+    private static BufferedImage square(BufferedImage src, int size, boolean alpha) {
+        int side = Math.min(src.getWidth(), src.getHeight());
+        BufferedImage img = src.getSubimage((src.getWidth() - side) / 2, (src.getHeight() - side) / 2, side, side);
+        int current = side;
+        do {
+            current = Math.max(size, current / 2);
+            img = scale(img, current, alpha);
+        } while (current > size);
+        return img;
+    }
+
+    private static BufferedImage scale(BufferedImage src, int size, boolean alpha) {
+        BufferedImage dst = new BufferedImage(size, size, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = dst.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(src, 0, 0, size, size, null);
+        } finally {
+            g.dispose();
+        }
+        return dst;
+    }
+
+    // Written to a temp file and renamed, so a half-written thumbnail is never served
+    private void write(BufferedImage img, String ext, Path out) throws IOException {
+        Path tmp = Files.createTempFile(dir, "thumb-", ".tmp");
+        try {
+            if (!ImageIO.write(img, ext, tmp.toFile())) throw new IOException("No ImageIO writer for " + ext);
+            Files.move(tmp, out, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static String url(String name) {
+        return "/uploads/" + DIR + "/" + name;
+    }
+
+    private static String extension(MultipartFile avatar) {
+        String ext = EXT.get(avatar.getContentType());
+        if (ext != null) return ext;
+        String original = avatar.getOriginalFilename();
+        String suffix   = original == null ? "" : original.replaceAll(".*\\.", "").toLowerCase();
+        return suffix.matches("[a-z0-9]{1,5}") ? suffix : "img";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
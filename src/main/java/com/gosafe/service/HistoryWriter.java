@@ -0,0 +1,227 @@
+package com.gosafe.service;
+
+import com.gosafe.entity.RouteHistory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind for route history, so a search never waits on the database.
+ *
+ * Entries go into a bounded in-memory queue; one background thread drains it
+ * and inserts up to gosafe.history.batch-size rows per multi-row INSERT, at the
+ * latest gosafe.history.flush-interval after the first row of a batch arrived.
+ * When the queue is full the oldest entry is dropped (newer searches are the
+ * ones users look for). searched_at is stamped at enqueue time, so ordering
+ * is unaffected by the delay. Remaining rows are flushed on shutdown.
+ *
+ * A batch rejected for its data (constraint violation, bad value) is retried
+ * one row at a time so a single bad row does not take the rest with it. When
+ * the database is unreachable or the failure is transient, the whole batch is
+ * retried up to gosafe.history.retry-attempts times with doubling backoff, then
+ * dropped and counted once; splitting it would only multiply the failures.
+ */
+@Service
+public class HistoryWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(HistoryWriter.class);
+
+    private static final String INSERT =
+        "INSERT INTO route_history (user_id, origin, destination, route_name, distance, duration, " +
+        "safety_score, searched_at) VALUES ";
+    private static final String ROW = "(?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbc;
+    private final BlockingQueue<RouteHistory> queue;
+    private final int      batchSize;
+    private final Duration flushInterval;
+    private final Duration shutdownTimeout;
+    private final int      retryAttempts;
+    private final Duration retryBackoff;
+
+    private final Counter overflowDrops, errorDrops, closedDrops;
+    private final Timer   flushTimer;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public HistoryWriter(JdbcTemplate jdbc,
+                         MeterRegistry registry,
+                         @Value("${gosafe.history.queue-capacity}") int capacity,
+                         @Value("${gosafe.history.batch-size}") int batchSize,
+                         @Value("${gosafe.history.flush-interval}") Duration flushInterval,
+                         @Value("${gosafe.history.shutdown-timeout}") Duration shutdownTimeout,
+                         @Value("${gosafe.history.retry-attempts}") int retryAttempts,
+                         @Value("${gosafe.history.retry-backoff}") Duration retryBackoff) {
+        this.jdbc            = jdbc;
+        this.queue           = new ArrayBlockingQueue<>(capacity);
+        this.batchSize       = batchSize;
+        this.flushInterval   = flushInterval;
+        this.shutdownTimeout = shutdownTimeout;
+        this.retryAttempts   = retryAttempts;
+        this.retryBackoff    = retryBackoff;
+        this.overflowDrops   = registry.counter("gosafe.history.dropped", "reason", "overflow");
+        this.errorDrops      = registry.counter("gosafe.history.dropped", "reason", "error");
+        this.closedDrops     = registry.counter("gosafe.history.dropped", "reason", "closed");
+        this.flushTimer      = registry.timer("gosafe.history.flush");
+        registry.gauge("gosafe.history.queue.size", queue, BlockingQueue::size);
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        writer  = new Thread(this::run, "history-writer");
+        writer.start();
+    }
+
+    /** Queues h for insertion; never blocks. */
+    public void record(RouteHistory h) {
+        if (h.getSearchedAt() == null) h.setSearchedAt(LocalDateTime.now());
+        if (!running) {
+            closedDrops.increment();
+            return;
+        }
+        while (!queue.offer(h)) {
+            if (queue.poll() != null) overflowDrops.increment();
+        }
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        writer.join(shutdownTimeout.toMillis());
+        if (writer.isAlive()) log.warn("History writer still flushing after {}; {} rows pending",
+                                       shutdownTimeout, queue.size());
+    }
+
+    // ─── Writer thread ────────────────────────────────────────────────────────
+    private void run() {
+        List<RouteHistory> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                fill(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /** Waits for a first row, then collects until the batch is full or the flush interval has passed. */
+    private void fill(List<RouteHistory> batch) throws InterruptedException {
+        long wait = running ? flushInterval.toNanos() : 0;
+        RouteHistory first = queue.poll(wait, TimeUnit.NANOSECONDS);
+        if (first == null) return;
+        batch.add(first);
+        long deadline = System.nanoTime() + wait;
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long left = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || left <= 0) break;
+            RouteHistory next = queue.poll(left, TimeUnit.NANOSECONDS);
+            if (next == null) break;
+            batch.add(next);
+        }
+    }
+
+    private void flush(List<RouteHistory> batch) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                flushTimer.record(() -> insert(batch));
+                return;
+            } catch (TransientDataAccessException | DataAccessResourceFailureException e) {
+                // Checked before NonTransientDataAccessException, which DataAccessResourceFailureException extends
+                if (attempt >= retryAttempts || !backOff(attempt, batch.size(), e)) {
+                    drop(batch, e);
+                    return;
+                }
+            } catch (NonTransientDataAccessException e) {
+                if (batch.size() == 1) drop(batch, e);
+                else insertEach(batch, e);
+                return;
+            } catch (RuntimeException e) {
+                drop(batch, e);
+                return;
+            }
+        }
+    }
+
+    /** Sleeps before retry attempt + 1; false when shutting down or interrupted. */
+    private boolean backOff(int attempt, int rows, RuntimeException e) {
+        if (!running) return false;
+        Duration delay = retryBackoff.multipliedBy(1L << Math.min(attempt - 1, 10));
+        log.warn("Could not write {} route history rows, retrying in {}: {}", rows, delay, e.toString());
+        try {
+            Thread.sleep(delay.toMillis());
+            return true;
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            running = false;
+            return false;
+        }
+    }
+
+    private void drop(List<RouteHistory> batch, RuntimeException e) {
+        errorDrops.increment(batch.size());
+        log.warn("Dropped {} route history rows: {}", batch.size(), e.toString());
+    }
+
+    private void insertEach(List<RouteHistory> batch, RuntimeException cause) {
+        log.warn("Could not write {} route history rows, retrying one by one: {}", batch.size(), cause.toString());
+        int failed = 0;
+        RuntimeException last = null;
+        for (RouteHistory h : batch) {
+            try {
+                insert(List.of(h));
+            } catch (RuntimeException e) {
+                failed++;
+                last = e;
+            }
+        }
+        if (failed > 0) {
+            errorDrops.increment(failed);
+            log.warn("Dropped {} of {} route history rows: {}", failed, batch.size(), last.toString());
+        }
+    }
+
+    private void insert(List<RouteHistory> rows) {
+        StringBuilder sql = new StringBuilder(INSERT);
+        List<Object> args = new ArrayList<>(rows.size() * 8);
+        for (RouteHistory h : rows) {
+            if (!args.isEmpty()) sql.append(", ");
+            sql.append(ROW);
+            args.add(h.getUserId());
+            args.add(h.getOrigin());
+            args.add(h.getDestination());
+            args.add(h.getRouteName());
+            args.add(h.getDistance());
+            args.add(h.getDuration());
+            args.add(h.getSafetyScore());
+            args.add(Timestamp.valueOf(h.getSearchedAt()));
+        }
+        jdbc.update(sql.toString(), args.toArray());
+    }
+}
@@ -0,0 +1,244 @@
+package com.gosafe.service;
+
+import com.gosafe.geo.RoadGraph;
+import com.gosafe.geo.RoadGraphSearch;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process {@link RoutingEngine} over a preprocessed road graph
+ * (gosafe.routing.graph-file, format in {@link RoadGraph}), using bidirectional A*.
+ *
+ * Query points are snapped to the nearest routable node within
+ * gosafe.routing.max-snap-meters. Each concurrent search needs its own
+ * O(nodes) working arrays, so at most gosafe.routing.max-concurrent-searches
+ * run at once; further queries wait up to gosafe.routing.search-wait for a free
+ * one and are then answered by OSRM (gosafe.upstream.osrm) instead.
+ *
+ * Alternatives use the penalty method: after each search the edges of the
+ * path found are made {@value #PENALTY}× slower and the search is repeated. A
+ * result is kept if it shares at most gosafe.routing.max-overlap of its length
+ * with every route kept so far and is at most {@value #MAX_STRETCH}× slower
+ * than the fastest.
+ */
+@Service
+@ConditionalOnProperty(name = "gosafe.routing.engine", havingValue = "local")
+public class LocalRoutingEngine implements RoutingEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalRoutingEngine.class);
+
+    private static final float  PENALTY     = 1.4f;
+    private static final double MAX_STRETCH = 1.5;
+
+    private final RoadGraph              graph;
+    private final ThreadPoolTaskExecutor routeExecutor;
+    private final double                 maxSnapMeters;
+    private final double                 maxOverlap;
+    private final Timer                  searchTimer;
+    private final Counter                fallbacks;
+    private final OsrmRoutingEngine      osrm;
+
+    private final BlockingQueue<RoadGraphSearch> searches;
+    private final AtomicInteger                  created = new AtomicInteger();
+    private final int                            maxSearches;
+    private final long                           waitNanos;
+
+    // All searches stayed busy for the whole wait
+    private static final class SearchesBusyException extends RuntimeException {
+        SearchesBusyException() { super("All local route searches busy", null, false, false); }
+    }
+
+    public LocalRoutingEngine(UpstreamClient http,
+                              ThreadPoolTaskExecutor routeExecutor,
+                              MeterRegistry registry,
+                              @Value("${gosafe.routing.graph-file}") Path graphFile,
+                              @Value("${gosafe.routing.max-snap-meters}") double maxSnapMeters,
+                              @Value("${gosafe.routing.max-overlap}") double maxOverlap,
+                              @Value("${gosafe.routing.max-concurrent-searches:0}") int maxSearches,
+                              @Value("${gosafe.routing.search-wait}") Duration searchWait,
+                              @Value("${gosafe.routing.two-phase}") boolean twoPhase) {
+        long start = System.nanoTime();
+        try {
+            this.graph = RoadGraph.load(graphFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load road graph " + graphFile, e);
+        }
+        log.info("Loaded road graph {}: {} nodes, {} edges in {} ms", graphFile,
+                 graph.nodeCount(), graph.edgeCount(), (System.nanoTime() - start) / 1_000_000);
+
+        this.routeExecutor = routeExecutor;
+        this.maxSnapMeters = maxSnapMeters;
+        this.maxOverlap    = maxOverlap;
+        this.maxSearches   = maxSearches > 0 ? maxSearches : Runtime.getRuntime().availableProcessors();
+        this.searches      = new ArrayBlockingQueue<>(this.maxSearches);
+        this.waitNanos     = searchWait.toNanos();
+        this.searchTimer   = registry.timer("gosafe.routing.search", "engine", "local");
+        this.fallbacks     = registry.counter("gosafe.routing.fallback", "engine", "local", "reason", "busy");
+        this.osrm          = new OsrmRoutingEngine(http, routeExecutor, registry, twoPhase);
+    }
+
+    @Override
+    public CompletableFuture<RoutePath> route(List<double[]> points) {
+        return CompletableFuture.supplyAsync(() -> searchTimer.record(() -> routeNow(points)), routeExecutor)
+            .exceptionallyCompose(e -> {
+                if (busy(e)) return osrm.route(points);
+                log.warn("Local routing failed: {}", e.toString());
+                return CompletableFuture.completedFuture(null);
+            });
+    }
+
+    @Override
+    public CompletableFuture<List<RoutePath>> alternatives(double[] from, double[] to, int k) {
+        return CompletableFuture.supplyAsync(() -> searchTimer.record(() -> alternativesNow(from, to, k)), routeExecutor)
+            .exceptionallyCompose(e -> {
+                if (busy(e)) return osrm.alternatives(from, to, k);
+                log.warn("Local alternative routing failed: {}", e.toString());
+                return CompletableFuture.completedFuture(List.of());
+            });
+    }
+
+    private boolean busy(Throwable e) {
+        if (!(e.getCause() instanceof SearchesBusyException)) return false;
+        fallbacks.increment();
+        return true;
+    }
+
+    private List<RoutePath> alternativesNow(double[] from, double[] to, int k) {
+        int s = graph.nearestNode(from[0], from[1], maxSnapMeters);
+        int t = graph.nearestNode(to[0], to[1], maxSnapMeters);
+        if (s < 0 || t < 0) return List.of();
+
+        List<RoadGraphSearch.Path> kept  = new ArrayList<>(k);
+        List<int[]>                edges = new ArrayList<>(k);   // sorted edge ids of each kept route
+        double fastest = 0;
+        RoadGraphSearch search = borrow();
+        try {
+            for (int attempt = 0; attempt < 3 * k && kept.size() < k; attempt++) {
+                RoadGraphSearch.Path p = search.route(s, t);
+                if (p == null) break;
+                double secs = seconds(p);
+                if (kept.isEmpty()) fastest = secs;
+                else if (secs > MAX_STRETCH * fastest) break;
+                int[] sorted = p.edges().clone();
+                Arrays.sort(sorted);
+                if (kept.isEmpty() || overlapOk(sorted, edges)) {
+                    kept.add(p);
+                    edges.add(sorted);
+                }
+                search.penalize(p.edges(), PENALTY);
+            }
+        } finally {
+            search.clearPenalties();
+            searches.offer(search);
+        }
+        return kept.stream().map(p -> toRoutePath(List.of(p))).toList();
+    }
+
+    // Shares at most maxOverlap of its length with each kept route; both edge lists sorted
+    private boolean overlapOk(int[] edges, List<int[]> kept) {
+        double total = 0;
+        for (int e : edges) total += graph.meters(e);
+        for (int[] other : kept) {
+            double shared = 0;
+            for (int i = 0, j = 0; i < edges.length && j < other.length; ) {
+                if      (edges[i] < other[j]) i++;
+                else if (edges[i] > other[j]) j++;
+                else { shared += graph.meters(edges[i]); i++; j++; }
+            }
+            if (shared > maxOverlap * total) return false;
+        }
+        return true;
+    }
+
+    private double seconds(RoadGraphSearch.Path p) {
+        double secs = 0;
+        for (int e : p.edges()) secs += graph.seconds(e);
+        return secs;
+    }
+
+    private RoutePath routeNow(List<double[]> points) {
+        int[] snapped = new int[points.size()];
+        for (int i = 0; i < snapped.length; i++) {
+            snapped[i] = graph.nearestNode(points.get(i)[0], points.get(i)[1], maxSnapMeters);
+            if (snapped[i] < 0) return null;
+        }
+
+        List<RoadGraphSearch.Path> legs = new ArrayList<>(snapped.length - 1);
+        RoadGraphSearch search = borrow();
+        try {
+            for (int i = 0; i + 1 < snapped.length; i++) {
+                RoadGraphSearch.Path leg = search.route(snapped[i], snapped[i + 1]);
+                if (leg == null) return null;
+                legs.add(leg);
+            }
+        } finally {
+            searches.offer(search);
+        }
+        return toRoutePath(legs);
+    }
+
+    private RoadGraphSearch borrow() {
+        RoadGraphSearch s = searches.poll();
+        if (s != null) return s;
+        if (created.incrementAndGet() <= maxSearches) return new RoadGraphSearch(graph);
+        created.decrementAndGet();
+        try {
+            s = searches.poll(waitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+        if (s == null) throw new SearchesBusyException();
+        return s;
+    }
+
+    // Concatenated legs; a step wherever the road name changes, as OSRM reports manoeuvres
+    private RoutePath toRoutePath(List<RoadGraphSearch.Path> legs) {
+        int points = 1;
+        for (RoadGraphSearch.Path leg : legs) points += leg.edges().length;
+        double[] lat = new double[points], lng = new double[points];
+        List<RoutePath.Step> steps = new ArrayList<>();
+        double duration = 0, distance = 0;
+
+        int start = legs.get(0).nodes()[0], k = 0;
+        lat[k] = graph.lat(start);
+        lng[k] = graph.lng(start);
+        String road = null;
+        for (RoadGraphSearch.Path leg : legs) {
+            for (int e : leg.edges()) {
+                String name = graph.roadName(e);
+                if (!name.equals(road)) {
+                    steps.add(new RoutePath.Step(name, lat[k], lng[k]));
+                    road = name;
+                }
+                duration += graph.seconds(e);
+                distance += graph.meters(e);
+                k++;
+                lat[k] = graph.lat(graph.head(e));
+                lng[k] = graph.lng(graph.head(e));
+            }
+        }
+        steps.add(new RoutePath.Step(road == null ? "" : road, lat[k], lng[k]));   // arrival
+        return new RoutePath(duration, distance, lat, lng, steps);
+    }
+}
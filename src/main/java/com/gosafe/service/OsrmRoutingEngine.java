@@ -0,0 +1,91 @@
+package com.gosafe.service;
+
+import com.gosafe.cache.SingleFlight;
+import com.gosafe.service.UpstreamClient.Upstream;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link RoutingEngine} backed by the OSRM HTTP API (gosafe.upstream.osrm.*).
+ *
+ * With gosafe.routing.two-phase, summaries of via-point routes come from an
+ * overview=false request (totals only, a few hundred bytes) and full geometry
+ * and steps are requested only for the routes a search keeps. Native
+ * alternatives are always fetched with full geometry in their one
+ * alternatives=k call: fetching totals first would download them twice.
+ */
+@Service
+@ConditionalOnProperty(name = "gosafe.routing.engine", havingValue = "osrm", matchIfMissing = true)
+public class OsrmRoutingEngine implements RoutingEngine {
+
+    private static final String FULL    = "?overview=full&geometries=geojson&steps=true";
+    private static final String SUMMARY = "?overview=false";
+
+    private final UpstreamClient         http;
+    private final ThreadPoolTaskExecutor routeExecutor;
+    private final boolean                twoPhase;
+
+    // Identical concurrent requests share one call
+    private final SingleFlight<String, List<RoutePath>> flights;
+
+    public OsrmRoutingEngine(UpstreamClient http, ThreadPoolTaskExecutor routeExecutor, MeterRegistry registry,
+                             @Value("${gosafe.routing.two-phase}") boolean twoPhase) {
+        this.http          = http;
+        this.routeExecutor = routeExecutor;
+        this.twoPhase      = twoPhase;
+        this.flights       = new SingleFlight<String, List<RoutePath>>().bindTo(registry, "osrm");
+    }
+
+    @Override
+    public CompletableFuture<RoutePath> route(List<double[]> points) {
+        CompletableFuture<List<RoutePath>> routes = fetch(points, FULL);
+        return SingleFlight.derived(routes, routes.thenApply(r -> r.isEmpty() ? null : r.get(0)));
+    }
+
+    /** OSRM's own alternative-route search (alternatives=k, two coordinates only). */
+    @Override
+    public CompletableFuture<List<RoutePath>> alternatives(double[] from, double[] to, int k) {
+        return fetch(List.of(from, to), FULL + alternativesParam(k));
+    }
+
+    @Override
+    public CompletableFuture<RouteSummary> summary(List<double[]> points) {
+        if (!twoPhase) return RoutingEngine.super.summary(points);
+        CompletableFuture<List<RoutePath>> routes = fetch(points, SUMMARY);
+        return SingleFlight.derived(routes, routes.thenApply(r -> r.isEmpty() ? null
+            : new RouteSummary(r.get(0).duration(), r.get(0).distance(), () -> route(points))));
+    }
+
+    private static String alternativesParam(int k) {
+        return k > 1 ? "&alternatives=" + k : "";
+    }
+
+    private CompletableFuture<List<RoutePath>> fetch(List<double[]> points, String query) {
+        StringBuilder coords = new StringBuilder();
+        for (double[] p : points) {
+            if (coords.length() > 0) coords.append(';');
+            coords.append(String.format(Locale.US, "%f,%f", p[1], p[0]));
+        }
+        String path = "/route/v1/driving/" + coords + query;
+        return flights.run(path, () -> {
+            CompletableFuture<List<RoutePath>> routes =
+                UpstreamClient.parseAsync(http.getStream(Upstream.OSRM, path), this::parse, routeExecutor);
+            return SingleFlight.derived(routes, routes.exceptionally(e -> List.of()));
+        });
+    }
+
+    private List<RoutePath> parse(InputStream body) {
+        try { return UpstreamJson.osrmRoutes(body); }
+        catch (IOException e) { throw new UncheckedIOException(e); }
+    }
+}
@@ -0,0 +1,77 @@
+package com.gosafe.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * BCrypt hashing and verification on the bounded passwordExecutor, off the
+ * request threads. When the pool is saturated calls fail fast with
+ * {@link BusyException} (served as 503 + Retry-After).
+ *
+ * Publishes gosafe.password.hash{op=encode|verify} and gosafe.password.rejected.
+ */
+@Service
+public class PasswordHasher {
+
+    /** The hashing pool is full; retry after the given delay. */
+    public static class BusyException extends RuntimeException {
+        private final Duration retryAfter;
+        public BusyException(Duration retryAfter) {
+            super("Server is busy, please try again shortly.");
+            this.retryAfter = retryAfter;
+        }
+        public Duration getRetryAfter() { return retryAfter; }
+    }
+
+    private final BCryptPasswordEncoder  bcrypt;
+    private final ThreadPoolTaskExecutor pool;
+    private final Duration               retryAfter;
+
+    private final Timer   encodeTimer, verifyTimer;
+    private final Counter rejected;
+
+    public PasswordHasher(@Qualifier("passwordExecutor") ThreadPoolTaskExecutor pool,
+                          MeterRegistry registry,
+                          @Value("${gosafe.password.bcrypt-strength}") int strength,
+                          @Value("${gosafe.password.retry-after}") Duration retryAfter) {
+        this.bcrypt      = new BCryptPasswordEncoder(strength);
+        this.pool        = pool;
+        this.retryAfter  = retryAfter;
+        this.encodeTimer = registry.timer("gosafe.password.hash", "op", "encode");
+        this.verifyTimer = registry.timer("gosafe.password.hash", "op", "verify");
+        this.rejected    = registry.counter("gosafe.password.rejected");
+    }
+
+    public CompletableFuture<String> encode(String raw) {
+        return submit(encodeTimer, () -> bcrypt.encode(raw));
+    }
+
+    public CompletableFuture<Boolean> matches(String raw, String hash) {
+        return submit(verifyTimer, () -> bcrypt.matches(raw, hash));
+    }
+
+    /** True when the hash was made with a lower cost than gosafe.password.bcrypt-strength. */
+    public boolean needsRehash(String hash) {
+        return bcrypt.upgradeEncoding(hash);
+    }
+
+    private <T> CompletableFuture<T> submit(Timer timer, Supplier<T> work) {
+        try {
+            return CompletableFuture.supplyAsync(() -> timer.record(work), pool);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new BusyException(retryAfter);
+        }
+    }
+}
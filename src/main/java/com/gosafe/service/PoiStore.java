@@ -0,0 +1,253 @@
+package com.gosafe.service;
+
+import com.gosafe.entity.Poi;
+import com.gosafe.entity.PoiTile;
+import com.gosafe.geo.Geohash;
+import com.gosafe.repository.PoiRepository;
+import com.gosafe.repository.PoiTileRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+/**
+ * Persistent POI store keyed by geohash tiles (precision 5, ~4.9 km cells).
+ *
+ * Each tile records when its POIs were last fetched. A lookup only goes to
+ * Overpass for tiles that are missing or older than gosafe.poi-store.ttl (at
+ * most tiles-per-query tiles per request, split further while an answer hits
+ * fetch-limit), and builds its answer from the stored tiles. If Overpass fails,
+ * whatever is stored (even expired) is served; the lookup only fails when some
+ * tile was never fetched at all.
+ *
+ * Each stale tile is refreshed by one lookup at a time: a lookup that finds a
+ * tile already being fetched by another waits for that refresh instead of
+ * querying and writing the same rows in a parallel transaction.
+ */
+@Service
+public class PoiStore {
+
+    private static final Logger log = LoggerFactory.getLogger(PoiStore.class);
+
+    public static final int PRECISION = 5;
+
+    // Truncated answers are split down to cells of this precision (~150 m)
+    private static final int MAX_SPLIT_PRECISION = 7;
+    private static final int INSERT_ROWS         = 500;
+
+    private static final String INSERT_POIS =
+        "INSERT INTO pois (id, tile, lat, lng, name, category, station) VALUES ";
+    private static final String UPDATE_POIS =
+        " ON DUPLICATE KEY UPDATE tile = VALUES(tile), lat = VALUES(lat), lng = VALUES(lng), " +
+        "name = VALUES(name), category = VALUES(category), station = VALUES(station)";
+    private static final String INSERT_TILES = "INSERT INTO poi_tiles (geohash, fetched_at) VALUES ";
+    private static final String UPDATE_TILES = " ON DUPLICATE KEY UPDATE fetched_at = VALUES(fetched_at)";
+
+    private final PoiRepository          poiRepo;
+    private final PoiTileRepository      tileRepo;
+    private final TransactionTemplate    tx;
+    private final JdbcTemplate           jdbc;
+    private final ThreadPoolTaskExecutor routeExecutor;
+    private final Duration               ttl;
+    private final int                    fetchLimit;
+    private final int                    tilesPerQuery;
+
+    // Tiles being refreshed, completed when their refresh has been stored (or failed)
+    private final ConcurrentHashMap<String, CompletableFuture<Void>> refreshing = new ConcurrentHashMap<>();
+    private final Counter tileHits, tileFetches, tileWaits, splits;
+
+    public PoiStore(PoiRepository poiRepo,
+                    PoiTileRepository tileRepo,
+                    PlatformTransactionManager txManager,
+                    JdbcTemplate jdbc,
+                    ThreadPoolTaskExecutor routeExecutor,
+                    MeterRegistry registry,
+                    @Value("${gosafe.poi-store.ttl}") Duration ttl,
+                    @Value("${gosafe.poi-store.fetch-limit}") int fetchLimit,
+                    @Value("${gosafe.poi-store.tiles-per-query}") int tilesPerQuery) {
+        this.poiRepo       = poiRepo;
+        this.tileRepo      = tileRepo;
+        this.tx            = new TransactionTemplate(txManager);
+        this.jdbc          = jdbc;
+        this.routeExecutor = routeExecutor;
+        this.ttl           = ttl;
+        this.fetchLimit    = fetchLimit;
+        this.tilesPerQuery = tilesPerQuery;
+        this.tileHits      = registry.counter("gosafe.poi-store.tiles", "result", "fresh");
+        this.tileFetches   = registry.counter("gosafe.poi-store.tiles", "result", "fetched");
+        this.tileWaits     = registry.counter("gosafe.poi-store.tiles", "result", "coalesced");
+        this.splits        = registry.counter("gosafe.poi-store.truncated-queries");
+    }
+
+    /**
+     * All stored POIs of the given tiles. Missing / expired tiles are first fetched
+     * through {@code overpass} (boxes, element limit) and stored.
+     */
+    public CompletableFuture<List<Poi>> poisIn(Set<String> cells,
+                                               BiFunction<List<double[]>, Integer, CompletableFuture<List<Poi>>> overpass) {
+        return CompletableFuture.supplyAsync(() -> staleCells(cells), routeExecutor)
+            .thenCompose(stale -> {
+                List<CompletableFuture<?>> waits = new ArrayList<>();
+                Map<String, CompletableFuture<Void>> mine = new TreeMap<>();
+                for (String tile : stale.tiles()) {
+                    CompletableFuture<Void> claim = new CompletableFuture<>();
+                    CompletableFuture<Void> other = refreshing.putIfAbsent(tile, claim);
+                    if (other == null) {
+                        mine.put(tile, claim);
+                        continue;
+                    }
+                    // A failed refresh by another lookup only matters if this tile has nothing stored
+                    tileWaits.increment();
+                    waits.add(stale.stored().contains(tile) ? other.exceptionally(e -> null) : other);
+                }
+                List<String> sorted = new ArrayList<>(mine.keySet());
+                for (int i = 0; i < sorted.size(); i += tilesPerQuery) {
+                    Set<String> chunk    = new TreeSet<>(sorted.subList(i, Math.min(sorted.size(), i + tilesPerQuery)));
+                    boolean     fallback = stale.stored().containsAll(chunk);
+                    CompletableFuture<List<Poi>> refreshed = CompletableFuture.completedFuture(chunk)
+                        .thenCompose(c -> refresh(c, fallback, overpass));
+                    refreshed.whenComplete((pois, err) -> {
+                        for (String tile : chunk) {
+                            CompletableFuture<Void> claim = mine.get(tile);
+                            refreshing.remove(tile, claim);
+                            if (err != null) claim.completeExceptionally(err);
+                            else             claim.complete(null);
+                        }
+                    });
+                    waits.add(refreshed);
+                }
+                return CompletableFuture.allOf(waits.toArray(CompletableFuture[]::new));
+            })
+            .thenApplyAsync(done -> poiRepo.findByTileIn(cells), routeExecutor);
+    }
+
+    /** Tiles to fetch, and which of them have an older (expired) fetch to fall back on. */
+    private record Stale(Set<String> tiles, Set<String> stored) {}
+
+    private Stale staleCells(Set<String> cells) {
+        LocalDateTime cutoff = LocalDateTime.now().minus(ttl);
+        Set<String> missing = new TreeSet<>(cells);
+        Set<String> stored  = new HashSet<>();
+        for (PoiTile t : tileRepo.findAllById(cells)) {
+            if (t.getFetchedAt().isAfter(cutoff)) missing.remove(t.getGeohash());
+            else stored.add(t.getGeohash());
+        }
+        tileHits.increment(cells.size() - missing.size());
+        return new Stale(missing, stored);
+    }
+
+    // fallback: every tile has an earlier fetch, so a failed Overpass call can be served from the store
+    private CompletableFuture<List<Poi>> refresh(Set<String> missing, boolean fallback,
+                                                 BiFunction<List<double[]>, Integer, CompletableFuture<List<Poi>>> overpass) {
+        return fetch(new ArrayList<>(missing), overpass).handleAsync((found, err) -> {
+            if (err != null) {
+                if (!fallback) throw err instanceof CompletionException ce ? ce : new CompletionException(err);
+                log.warn("Overpass tile fetch failed for {} tiles, serving stored POIs: {}", missing.size(), err.toString());
+                return List.<Poi>of();
+            }
+            // Split queries overlap on cell borders
+            Map<Long, Poi> inMissing = new LinkedHashMap<>();
+            for (Poi p : found.pois()) {
+                p.setTile(Geohash.encode(p.getLat(), p.getLng(), PRECISION));
+                if (missing.contains(p.getTile())) inMissing.put(p.getId(), p);
+            }
+            // A tile with a cell still truncated at MAX_SPLIT_PRECISION is stored, but fetched again next time
+            Set<String> complete = new TreeSet<>(missing);
+            for (String cell : found.truncated()) complete.remove(cell.substring(0, PRECISION));
+            List<Poi> pois = new ArrayList<>(inMissing.values());
+            try {
+                save(missing, pois, complete);
+                tileFetches.increment(missing.size());
+            } catch (RuntimeException e) {
+                log.warn("Could not store POI tiles: {}", e.toString());
+            }
+            return pois;
+        }, routeExecutor);
+    }
+
+    /** POIs of one or more queries, and the cells whose answer was still truncated. */
+    private record Fetched(List<Poi> pois, Set<String> truncated) {
+        Fetched plus(Fetched other) {
+            List<Poi>   pois = new ArrayList<>(this.pois);
+            Set<String> cut  = new HashSet<>(truncated);
+            pois.addAll(other.pois);
+            cut.addAll(other.truncated);
+            return new Fetched(pois, cut);
+        }
+    }
+
+    /**
+     * POIs in the given cells. An answer that hits fetch-limit is truncated at an arbitrary
+     * point, so it is re-queried in halves, a single cell as its 32 sub-cells, down to
+     * MAX_SPLIT_PRECISION.
+     */
+    private CompletableFuture<Fetched> fetch(List<String> cells,
+                                             BiFunction<List<double[]>, Integer, CompletableFuture<List<Poi>>> overpass) {
+        return overpass.apply(Geohash.runs(cells), fetchLimit).thenCompose(pois -> {
+            if (pois.size() < fetchLimit) return CompletableFuture.completedFuture(new Fetched(pois, Set.of()));
+            String only = cells.size() == 1 ? cells.get(0) : null;
+            if (only != null && only.length() >= MAX_SPLIT_PRECISION)
+                return CompletableFuture.completedFuture(new Fetched(pois, Set.of(only)));
+            splits.increment();
+            List<String> parts = only != null ? Geohash.children(only) : cells;
+            int mid = parts.size() / 2;
+            return fetch(parts.subList(0, mid), overpass)
+                .thenCombine(fetch(parts.subList(mid, parts.size()), overpass), Fetched::plus);
+        });
+    }
+
+    // Upserts: a POI that moved keeps its id but may still be stored under its previous tile
+    private void save(Set<String> tiles, List<Poi> pois, Set<String> complete) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        tx.executeWithoutResult(status -> {
+            poiRepo.deleteByTileIn(tiles);
+            for (int i = 0; i < pois.size(); i += INSERT_ROWS)
+                upsertPois(pois.subList(i, Math.min(pois.size(), i + INSERT_ROWS)));
+            if (!complete.isEmpty()) upsertTiles(complete, now);
+        });
+    }
+
+    private void upsertPois(List<Poi> pois) {
+        StringBuilder sql = new StringBuilder(INSERT_POIS);
+        List<Object> args = new ArrayList<>(pois.size() * 7);
+        for (Poi p : pois) {
+            if (!args.isEmpty()) sql.append(", ");
+            sql.append("(?, ?, ?, ?, ?, ?, ?)");
+            args.add(p.getId());
+            args.add(p.getTile());
+            args.add(p.getLat());
+            args.add(p.getLng());
+            args.add(p.getName());
+            args.add(p.getCategory());
+            args.add(p.getStation());
+        }
+        jdbc.update(sql.append(UPDATE_POIS).toString(), args.toArray());
+    }
+
+    private void upsertTiles(Set<String> tiles, Timestamp fetchedAt) {
+        StringBuilder sql = new StringBuilder(INSERT_TILES);
+        List<Object> args = new ArrayList<>(tiles.size() * 2);
+        for (String t : tiles) {
+            if (!args.isEmpty()) sql.append(", ");
+            sql.append("(?, ?)");
+            args.add(t);
+            args.add(fetchedAt);
+        }
+        jdbc.update(sql.append(UPDATE_TILES).toString(), args.toArray());
+    }
+}
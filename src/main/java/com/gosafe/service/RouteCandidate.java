@@ -0,0 +1,36 @@
+package com.gosafe.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.util.List;
+
+/** A distinct candidate route reported while a streamed search runs, before scoring. */
+@JsonSerialize(using = RouteCandidate.Serializer.class)
+public record RouteCandidate(int candidate, double durationSecs, double distanceMeters,
+                             RouteGeometry geometry, List<RouteResult.Stop> stops) {
+
+    public RouteCandidate withGeometry(String format, Integer zoom) {
+        return new RouteCandidate(candidate, durationSecs, distanceMeters, geometry.as(format, zoom), stops);
+    }
+
+    public static class Serializer extends StdSerializer<RouteCandidate> {
+
+        public Serializer() { super(RouteCandidate.class); }
+
+        @Override
+        public void serialize(RouteCandidate c, JsonGenerator g, SerializerProvider provider) throws IOException {
+            g.writeStartObject();
+            g.writeNumberField("candidate",    c.candidate());
+            g.writeStringField("duration",     RouteResult.formatDuration(c.durationSecs()));
+            g.writeStringField("distance",     RouteResult.formatDistance(c.distanceMeters()));
+            g.writeNumberField("durationSecs", c.durationSecs());
+            c.geometry().write(g);
+            RouteResult.Serializer.writeStops(g, c.stops());
+            g.writeEndObject();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.gosafe.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.gosafe.geo.Polylines;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * A route's polyline as written to clients: the full geometry in parallel
+ * arrays, the indices kept after simplification (null = all), and the format.
+ *
+ * "full" writes "waypoints": [{lat, lng}, ...]; "polyline" a Google encoded
+ * "polyline"; "packed" a flat "waypointsPacked": [lat, lng, ...].
+ */
+public record RouteGeometry(double[] lat, double[] lng, int[] keep, String format) {
+
+    public static final Set<String> FORMATS = Set.of("full", "polyline", "packed");
+
+    public static RouteGeometry of(RoutePath r) {
+        return new RouteGeometry(r.lat(), r.lng(), null, "full");
+    }
+
+    /**
+     * The same geometry in another format. Non-full formats are simplified for the
+     * given zoom (default 15); "full" only when a zoom is given. Arrays are shared.
+     */
+    public RouteGeometry as(String format, Integer zoom) {
+        if (format.equals("full") && zoom == null) return new RouteGeometry(lat, lng, null, format);
+        int[] kept = Polylines.simplify(lat, lng, Polylines.toleranceForZoom(zoom != null ? zoom : 15));
+        return new RouteGeometry(lat, lng, kept, format);
+    }
+
+    /** Writes this geometry's field(s) into the current JSON object. */
+    void write(JsonGenerator g) throws IOException {
+        switch (format) {
+            case "polyline" -> g.writeStringField("polyline", Polylines.encode(lat, lng, keep));
+            case "packed" -> {
+                double[] packed = Polylines.pack(lat, lng, keep);
+                g.writeFieldName("waypointsPacked");
+                g.writeArray(packed, 0, packed.length);
+            }
+            default -> {
+                int n = keep == null ? lat.length : keep.length;
+                g.writeArrayFieldStart("waypoints");
+                for (int k = 0; k < n; k++) {
+                    int i = keep == null ? k : keep[k];
+                    g.writeStartObject();
+                    g.writeNumberField("lat", lat[i]);
+                    g.writeNumberField("lng", lng[i]);
+                    g.writeEndObject();
+                }
+                g.writeEndArray();
+            }
+        }
+    }
+}
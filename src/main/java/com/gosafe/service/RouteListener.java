@@ -0,0 +1,22 @@
+package com.gosafe.service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Progress callbacks of a streamed route search, in the order they fire:
+ * endpoints once, then per candidate route its geometry and later its shops.
+ * The final ranked list is the search's result. Callbacks run on upstream /
+ * executor threads.
+ */
+public interface RouteListener {
+
+    RouteListener NONE = new RouteListener() {};
+
+    default void onEndpoints(Map<String, Object> originGeo, Map<String, Object> destGeo) {}
+
+    /** A distinct candidate route, as soon as it is found, before shops and scoring. */
+    default void onRoute(int candidate, RouteCandidate route) {}
+
+    default void onShops(int candidate, List<Shop> shops) {}
+}
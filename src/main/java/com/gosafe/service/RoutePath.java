@@ -0,0 +1,21 @@
+package com.gosafe.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One route from a {@link RoutingEngine}: travel time (s), length (m), geometry as
+ * parallel lat / lng arrays, and the named manoeuvres along it in order.
+ */
+public record RoutePath(double duration, double distance, double[] lat, double[] lng, List<Step> steps) {
+
+    /** A manoeuvre onto a named road, at its location. */
+    public record Step(String name, double lat, double lng) {}
+
+    /** Geometry as a list of {lat, lng}. */
+    public List<double[]> waypoints() {
+        List<double[]> pts = new ArrayList<>(lat.length);
+        for (int i = 0; i < lat.length; i++) pts.add(new double[]{ lat[i], lng[i] });
+        return pts;
+    }
+}
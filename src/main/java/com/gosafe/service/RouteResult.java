@@ -0,0 +1,126 @@
+package com.gosafe.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * One ranked route of a search. Written by {@link Serializer} straight to the
+ * JSON stream (no intermediate maps), with the geometry in its chosen format.
+ */
+@JsonSerialize(using = RouteResult.Serializer.class)
+public record RouteResult(String id,
+                          String name,
+                          String description,
+                          SafetyScorer.Score safety,
+                          double durationSecs,
+                          double distanceMeters,
+                          int transfers,
+                          List<String> brands,
+                          List<String> badges,
+                          RouteGeometry geometry,
+                          List<Stop> stops,
+                          List<Shop> shops,
+                          String originStation,
+                          String destStation) {
+
+    /** A named point along the route. */
+    public record Stop(double lat, double lng, String name) {}
+
+    public String durationText() { return formatDuration(durationSecs); }
+    public String distanceText() { return formatDistance(distanceMeters); }
+
+    public RouteResult withGeometry(String format, Integer zoom) {
+        return new RouteResult(id, name, description, safety, durationSecs, distanceMeters, transfers, brands,
+                               badges, geometry.as(format, zoom), stops, shops, originStation, destStation);
+    }
+
+    public RouteResult withStations(String origin, String destination) {
+        return new RouteResult(id, name, description, safety, durationSecs, distanceMeters, transfers, brands,
+                               badges, geometry, stops, shops, origin, destination);
+    }
+
+    static String formatDuration(double secs) {
+        int m = (int) Math.round(secs / 60);
+        return m < 60 ? m + " min" : (m/60) + "h " + (m%60) + "m";
+    }
+
+    static String formatDistance(double meters) {
+        return String.format(Locale.US, "%.1f km", meters / 1000);
+    }
+
+    // ─── JSON ─────────────────────────────────────────────────────────────────
+    public static class Serializer extends StdSerializer<RouteResult> {
+
+        public Serializer() { super(RouteResult.class); }
+
+        @Override
+        public void serialize(RouteResult r, JsonGenerator g, SerializerProvider provider) throws IOException {
+            g.writeStartObject();
+            g.writeStringField("id",          r.id());
+            g.writeStringField("name",        r.name());
+            g.writeStringField("description", r.description());
+            g.writeNumberField("safetyScore", r.safety().score());
+            g.writeArrayFieldStart("safetyFactors");
+            for (SafetyScorer.Factor f : r.safety().factors()) {
+                g.writeStartObject();
+                g.writeStringField("name",  f.name());
+                g.writeNumberField("score", f.score());
+                g.writeEndObject();
+            }
+            g.writeEndArray();
+            g.writeStringField("duration",     r.durationText());
+            g.writeStringField("distance",     r.distanceText());
+            g.writeNumberField("durationSecs", r.durationSecs());
+            g.writeNumberField("transfers",    r.transfers());
+            g.writeNumberField("totalShops",   r.shops().size());
+            writeStrings(g, "brands", r.brands());
+            writeStrings(g, "badges", r.badges());
+            r.geometry().write(g);
+            writeStops(g, r.stops());
+            writeShops(g, r.shops());
+            g.writeStringField("originStation", r.originStation());
+            g.writeStringField("destStation",   r.destStation());
+            g.writeEndObject();
+        }
+
+        private static void writeStrings(JsonGenerator g, String field, List<String> values) throws IOException {
+            g.writeArrayFieldStart(field);
+            for (String v : values) g.writeString(v);
+            g.writeEndArray();
+        }
+
+        static void writeStops(JsonGenerator g, List<Stop> stops) throws IOException {
+            g.writeArrayFieldStart("stops");
+            for (Stop s : stops) {
+                g.writeStartObject();
+                g.writeNumberField("lat",  s.lat());
+                g.writeNumberField("lng",  s.lng());
+                g.writeStringField("name", s.name());
+                g.writeEndObject();
+            }
+            g.writeEndArray();
+        }
+
+        private static void writeShops(JsonGenerator g, List<Shop> shops) throws IOException {
+            g.writeArrayFieldStart("shops");
+            for (Shop s : shops) {
+                g.writeStartObject();
+                g.writeStringField("name",     s.name());
+                g.writeStringField("category", s.category());
+                g.writeStringField("icon",     s.icon());
+                g.writeStringField("color",    s.color());
+                g.writeNumberField("lat",      s.lat());
+                g.writeNumberField("lng",      s.lng());
+                g.writeStringField("station",  s.station());
+                g.writeEndObject();
+            }
+            g.writeEndArray();
+        }
+    }
+}
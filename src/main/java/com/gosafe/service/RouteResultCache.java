@@ -0,0 +1,155 @@
+package com.gosafe.service;
+
+import com.gosafe.cache.TtlCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches assembled route lists in front of {@link RouteService#routesBetween}.
+ *
+ * Geocoded endpoints are snapped to a grid (gosafe.route-cache.grid-meters) so
+ * nearby searches share an entry. An entry younger than ttl is served as-is;
+ * up to stale-while-revalidate it is still served while a background refresh
+ * runs; after that it is recomputed, and the old result is only kept (until
+ * stale-if-error) as a fallback for when OSRM or Overpass fails. A result whose
+ * shop lookup failed is served when there is nothing older, but never cached.
+ */
+@Service
+public class RouteResultCache {
+
+    private static final Logger log = LoggerFactory.getLogger(RouteResultCache.class);
+
+    private record Entry(List<RouteResult> routes, long computedAt) {}
+
+    private final RouteService             routeService;
+    private final TtlCache<String, Entry>  cache;
+    private final Set<String>              refreshing = ConcurrentHashMap.newKeySet();
+    private final double                   gridMeters;
+    private final long                     ttlMillis;
+    private final long                     swrMillis;
+
+    private final Counter fresh, stale, computed, fallback;
+
+    public RouteResultCache(RouteService routeService,
+                            MeterRegistry registry,
+                            @Value("${gosafe.route-cache.grid-meters}") double gridMeters,
+                            @Value("${gosafe.route-cache.max-size}") int maxSize,
+                            @Value("${gosafe.route-cache.ttl}") Duration ttl,
+                            @Value("${gosafe.route-cache.stale-while-revalidate}") Duration staleWhileRevalidate,
+                            @Value("${gosafe.route-cache.stale-if-error}") Duration staleIfError) {
+        this.routeService = routeService;
+        this.gridMeters   = gridMeters;
+        this.ttlMillis    = ttl.toMillis();
+        this.swrMillis    = staleWhileRevalidate.toMillis();
+        this.cache        = new TtlCache<String, Entry>(maxSize, staleIfError).bindTo(registry, "routes");
+        this.fresh        = registry.counter("gosafe.route-cache.served", "state", "fresh");
+        this.stale        = registry.counter("gosafe.route-cache.served", "state", "stale");
+        this.computed     = registry.counter("gosafe.route-cache.served", "state", "computed");
+        this.fallback     = registry.counter("gosafe.route-cache.served", "state", "error-fallback");
+    }
+
+    /** Geocodes both endpoints, then serves routes between them from the cache where possible. */
+    public CompletableFuture<List<RouteResult>> search(String origin, String destination) {
+        return search(origin, destination, RouteListener.NONE);
+    }
+
+    /**
+     * As {@link #search(String, String)}, reporting progress to {@code listener}. A cache
+     * hit reports only the endpoints; a miss streams each route and its shops as they arrive.
+     */
+    public CompletableFuture<List<RouteResult>> search(String origin, String destination,
+                                                              RouteListener listener) {
+        CompletableFuture<Map<String, Object>> from = routeService.geocodeAsync(origin);
+        CompletableFuture<Map<String, Object>> to   = routeService.geocodeAsync(destination);
+        // One endpoint failing fails the search, so its other geocode need not be sent
+        from.whenComplete((geo, err) -> { if (err != null) to.completeExceptionally(err); });
+        to.whenComplete((geo, err) -> { if (err != null) from.completeExceptionally(err); });
+        return from.thenCombine(to, List::of)
+            .thenCompose(geo -> {
+                listener.onEndpoints(geo.get(0), geo.get(1));
+                return routesBetween(geo.get(0), geo.get(1), listener)
+                    .thenApply(routes -> withStations(routes, geo.get(0), geo.get(1)));
+            });
+    }
+
+    private CompletableFuture<List<RouteResult>> routesBetween(Map<String, Object> originGeo,
+                                                                      Map<String, Object> destGeo,
+                                                                      RouteListener listener) {
+        String key  = cell(originGeo) + "|" + cell(destGeo);
+        Entry entry = cache.get(key);
+        long age    = entry == null ? Long.MAX_VALUE : System.currentTimeMillis() - entry.computedAt();
+
+        if (age < ttlMillis) {
+            fresh.increment();
+            return CompletableFuture.completedFuture(entry.routes());
+        }
+        if (age < swrMillis) {
+            stale.increment();
+            refresh(key, originGeo, destGeo);
+            return CompletableFuture.completedFuture(entry.routes());
+        }
+        return compute(key, originGeo, destGeo, listener).handle((found, err) -> {
+            if (err == null && (found.complete() || entry == null)) {
+                computed.increment();
+                return CompletableFuture.completedFuture(found.routes());
+            }
+            if (entry == null) return CompletableFuture.<List<RouteResult>>failedFuture(err);
+            log.warn("Route recompute failed for {}, serving last good result: {}", key,
+                     err != null ? err.toString() : "shop lookup failed");
+            fallback.increment();
+            return CompletableFuture.completedFuture(entry.routes());
+        }).thenCompose(f -> f);
+    }
+
+    // Only complete results (every shop lookup answered) are cached
+    private CompletableFuture<RouteService.Routes> compute(String key, Map<String, Object> originGeo,
+                                                           Map<String, Object> destGeo,
+                                                           RouteListener listener) {
+        CompletableFuture<RouteService.Routes> pipeline = listener == RouteListener.NONE
+            ? routeService.routesBetween(originGeo, destGeo)
+            : routeService.routesBetween(originGeo, destGeo, listener);
+        return pipeline.thenApply(found -> {
+            if (found.complete()) cache.put(key, new Entry(found.routes(), System.currentTimeMillis()));
+            return found;
+        });
+    }
+
+    /** At most one background refresh per key; a failed refresh leaves the old entry in place. */
+    private void refresh(String key, Map<String, Object> originGeo, Map<String, Object> destGeo) {
+        if (!refreshing.add(key)) return;
+        compute(key, originGeo, destGeo, RouteListener.NONE).whenComplete((found, err) -> {
+            refreshing.remove(key);
+            if (err != null)            log.warn("Background route refresh failed for {}: {}", key, err.toString());
+            else if (!found.complete()) log.warn("Background route refresh for {} had no shops, keeping old entry", key);
+        });
+    }
+
+    // ─── Grid snapping ────────────────────────────────────────────────────────
+    private String cell(Map<String, Object> geo) {
+        double lat     = ((Number) geo.get("lat")).doubleValue();
+        double lng     = ((Number) geo.get("lng")).doubleValue();
+        double cellLat = gridMeters / 111_320d;
+        long   row     = (long) Math.floor(lat / cellLat);
+        double cellLng = cellLat / Math.max(0.01, Math.cos(Math.toRadians(row * cellLat)));
+        return row + ":" + (long) Math.floor(lng / cellLng);
+    }
+
+    // Entries are shared by everyone in the same cell; station names follow this caller's geocode.
+    private List<RouteResult> withStations(List<RouteResult> routes,
+                                           Map<String, Object> originGeo, Map<String, Object> destGeo) {
+        String from = ((String) originGeo.get("display")).split(",")[0];
+        String to   = ((String) destGeo.get("display")).split(",")[0];
+        List<RouteResult> out = new ArrayList<>(routes.size());
+        for (RouteResult r : routes) out.add(r.withStations(from, to));
+        return out;
+    }
+}
@@ -2,46 +2,121 @@ package com.gosafe.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.springframework.http.*;
+import com.gosafe.cache.SingleFlight;
+import com.gosafe.cache.TtlCache;
+import com.gosafe.entity.Poi;
+import com.gosafe.geo.CorridorIndex;
+import com.gosafe.geo.Geohash;
+import com.gosafe.geo.Polylines;
+import com.gosafe.service.UpstreamClient.Priority;
+import com.gosafe.service.UpstreamClient.Upstream;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.function.Consumer;
 
 @Service
 public class RouteService {
 
-    private static final String NOMINATIM = "https://nominatim.openstreetmap.org";
-    private static final String OSRM      = "https://router.project-osrm.org";
-    private static final String OVERPASS  = "https://overpass-api.de/api/interpreter";
-
-    private final RestTemplate  http;
-    private final ObjectMapper  mapper = new ObjectMapper();
+    // Cached "Could not find" result for geocode()
+    private static final Map<String, Object> NOT_FOUND = Map.of();
+
+    private static final int OVERPASS_LIMIT = 500;   // elements per query when the POI store is off
+    private static final int MAX_SHOPS      = 30;    // shops returned per route
+
+    private final UpstreamClient http;
+    private final RoutingEngine  routing;
+    private final SafetyScorer   safetyScorer;
+    private final ObjectMapper   mapper = new ObjectMapper();
+    private final ThreadPoolTaskExecutor routeExecutor;
+
+    private final TtlCache<String, Map<String, Object>>       geocodeCache;
+    private final TtlCache<String, List<Map<String, Object>>> autocompleteCache;
+    private final Duration negativeTtl;
+    private final boolean  mergeOverpass;
+
+    // Identical concurrent upstream lookups share one request
+    private final SingleFlight<String, Map<String, Object>>       geocodeFlights;
+    private final SingleFlight<String, List<Poi>>                 shopFlights;
+
+    private final PoiStore poiStore;
+    private final boolean  usePoiStore;
+    private final double   corridorMeters;
+    private final int      alternatives;
+    private final boolean  viaFallback;
+
+    public RouteService(UpstreamClient http,
+                        RoutingEngine routing,
+                        SafetyScorer safetyScorer,
+                        ThreadPoolTaskExecutor routeExecutor,
+                        PoiStore poiStore,
+                        MeterRegistry registry,
+                        @Value("${gosafe.geocode.cache.max-size}") int cacheSize,
+                        @Value("${gosafe.geocode.cache.ttl}") Duration ttl,
+                        @Value("${gosafe.geocode.cache.negative-ttl}") Duration negativeTtl,
+                        @Value("${gosafe.overpass.merge-routes}") boolean mergeOverpass,
+                        @Value("${gosafe.poi-store.enabled}") boolean usePoiStore,
+                        @Value("${gosafe.poi.corridor-meters}") double corridorMeters,
+                        @Value("${gosafe.routing.alternatives}") int alternatives,
+                        @Value("${gosafe.routing.via-fallback}") boolean viaFallback) {
+        this.http              = http;
+        this.routing           = routing;
+        this.safetyScorer      = safetyScorer;
+        this.routeExecutor     = routeExecutor;
+        this.geocodeCache      = new TtlCache<String, Map<String, Object>>(cacheSize, ttl)
+                                     .bindTo(registry, "geocode");
+        this.autocompleteCache = new TtlCache<String, List<Map<String, Object>>>(cacheSize, ttl)
+                                     .bindTo(registry, "autocomplete");
+        this.negativeTtl       = negativeTtl;
+        this.mergeOverpass     = mergeOverpass;
+        this.poiStore          = poiStore;
+        this.usePoiStore       = usePoiStore;
+        this.corridorMeters    = corridorMeters;
+        this.alternatives      = alternatives;
+        this.viaFallback       = viaFallback;
+        this.geocodeFlights    = new SingleFlight<String, Map<String, Object>>().bindTo(registry, "geocode");
+        this.shopFlights       = new SingleFlight<String, List<Poi>>().bindTo(registry, "overpass");
+    }
 
-    public RouteService() {
-        this.http = new RestTemplate();
+    // ─── Nominatim geocode ────────────────────────────────────────────────────
+    public Map<String, Object> geocode(String query) throws Exception {
+        return await(geocodeAsync(query));
     }
 
-    private HttpHeaders headers() {
-        HttpHeaders h = new HttpHeaders();
-        h.set("User-Agent",       "GoSafe-IndiaTransit/1.0");
-        h.set("Accept-Language",  "en");
-        return h;
+    public CompletableFuture<Map<String, Object>> geocodeAsync(String query) {
+        String key = normalizeQuery(query);
+        Map<String, Object> cached = geocodeCache.get(key);
+        CompletableFuture<Map<String, Object>> place = cached != null
+            ? CompletableFuture.completedFuture(cached)
+            : geocodeFlights.run(key, () -> {
+                  CompletableFuture<String> body = http.get(Upstream.NOMINATIM, "/search?q=" + enc(query)
+                       + "&format=json&limit=1&countrycodes=in&addressdetails=1");
+                  return SingleFlight.derived(body, body.thenApplyAsync(this::parsePlace, routeExecutor)
+                      .whenComplete((p, err) -> {
+                          if (p == NOT_FOUND) geocodeCache.put(key, p, negativeTtl);
+                          else if (p != null) geocodeCache.put(key, p);
+                      }));
+              });
+        return SingleFlight.derived(place, place.thenApply(p -> {
+            if (p == NOT_FOUND)
+                throw new RuntimeException("Could not find \"" + query + "\" in India. Try a more specific name.");
+            return p;
+        }));
     }
 
-    // ─── Nominatim geocode ────────────────────────────────────────────────────
-    public Map<String, Object> geocode(String query) throws Exception {
-        String url = NOMINATIM + "/search?q=" + enc(query)
-                   + "&format=json&limit=1&countrycodes=in&addressdetails=1";
-        ResponseEntity<String> res = http.exchange(url, HttpMethod.GET,
-                new HttpEntity<>(headers()), String.class);
-        JsonNode arr = mapper.readTree(res.getBody());
-        if (arr.isEmpty())
-            throw new RuntimeException("Could not find \"" + query + "\" in India. Try a more specific name.");
+    Map<String, Object> parsePlace(String body) {
+        JsonNode arr = readTree(body);
+        if (arr.isEmpty()) return NOT_FOUND;
         JsonNode d = arr.get(0);
         return Map.of(
             "lat",     d.get("lat").asDouble(),
@@ -51,13 +126,21 @@ public class RouteService {
     }
 
     // ─── Nominatim autocomplete ───────────────────────────────────────────────
-    public List<Map<String, Object>> autocomplete(String query) {
-        return autocompleteNearby(query, null);
+    // Keystroke traffic goes in the LOW lane so it never delays search geocodes; a newer
+    // lookup from the same client (clientKey, may be null) supersedes its queued one.
+    public List<Map<String, Object>> autocomplete(String query, String clientKey) {
+        return autocompleteNearby(query, null, clientKey);
     }
 
-    public List<Map<String, Object>> autocompleteNearby(String query, Map<String, Double> coords) {
+    public List<Map<String, Object>> autocompleteNearby(String query, Map<String, Double> coords,
+                                                        String clientKey) {
+        // Viewbox spans ±1°, so nearby callers within ~10 km share an entry
+        String key = normalizeQuery(query) + (coords == null ? "" : String.format(Locale.US, "@%.1f,%.1f",
+                     coords.get("lat"), coords.get("lng")));
+        List<Map<String, Object>> cached = autocompleteCache.get(key);
+        if (cached != null) return cached;
         try {
-            StringBuilder url = new StringBuilder(NOMINATIM + "/search?q=" + enc(query)
+            StringBuilder url = new StringBuilder("/search?q=" + enc(query)
                     + "&format=json&limit=7&countrycodes=in&addressdetails=1");
             if (coords != null) {
                 double span = 1.0;
@@ -67,16 +150,18 @@ public class RouteService {
                    .append(coords.get("lat") + span)
                    .append("&bounded=0");
             }
-            ResponseEntity<String> res = http.exchange(url.toString(), HttpMethod.GET,
-                    new HttpEntity<>(headers()), String.class);
-            JsonNode arr = mapper.readTree(res.getBody());
+            JsonNode arr = mapper.readTree(await(
+                http.get(Upstream.NOMINATIM, url.toString(), Priority.LOW, clientKey)));
             List<Map<String, Object>> results = new ArrayList<>();
             for (JsonNode d : arr) results.add(formatPlace(d));
+            results = List.copyOf(results);
+            if (results.isEmpty()) autocompleteCache.put(key, results, negativeTtl);
+            else                   autocompleteCache.put(key, results);
             return results;
         } catch (Exception e) { return List.of(); }
     }
 
-    private Map<String, Object> formatPlace(JsonNode d) {
+    Map<String, Object> formatPlace(JsonNode d) {
         JsonNode a = d.has("address") ? d.get("address") : mapper.createObjectNode();
         String specific = firstNonNull(a,
             "amenity","building","railway","aeroway","road","neighbourhood","suburb");
@@ -95,35 +180,64 @@ public class RouteService {
         return m;
     }
 
-    // ─── OSRM single route (optionally via a waypoint) ────────────────────────
-    private JsonNode fetchOSRMOne(Map<String, Object> origin, Map<String, Object> dest,
-                                   Map<String, Double> via) {
-        try {
-            String coords;
-            if (via != null) {
-                coords = String.format(Locale.US, "%f,%f;%f,%f;%f,%f",
-                    dbl(origin,"lng"), dbl(origin,"lat"),
-                    via.get("lng"),    via.get("lat"),
-                    dbl(dest,"lng"),   dbl(dest,"lat"));
-            } else {
-                coords = String.format(Locale.US, "%f,%f;%f,%f",
-                    dbl(origin,"lng"), dbl(origin,"lat"),
-                    dbl(dest,"lng"),   dbl(dest,"lat"));
-            }
-            String url = OSRM + "/route/v1/driving/" + coords
-                       + "?overview=full&geometries=geojson&steps=true";
-            ResponseEntity<String> res = http.exchange(url, HttpMethod.GET,
-                    new HttpEntity<>(headers()), String.class);
-            JsonNode json = mapper.readTree(res.getBody());
-            if (!json.path("code").asText().equals("Ok")) return null;
-            JsonNode routes = json.path("routes");
-            return routes.isEmpty() ? null : routes.get(0);
-        } catch (Exception e) { return null; }
-    }
-
-    // ─── Build up to 3 genuinely different routes (perpendicular via strategy) ─
-    private List<JsonNode> buildThreeRoutes(Map<String, Object> originGeo,
-                                             Map<String, Object> destGeo) throws Exception {
+    // ─── Single route (optionally via a waypoint) ─────────────────────────────
+    private CompletableFuture<RouteSummary> routeVia(Map<String, Object> origin, Map<String, Object> dest,
+                                                     Map<String, Double> via) {
+        List<double[]> points = new ArrayList<>(3);
+        points.add(new double[]{ dbl(origin,"lat"), dbl(origin,"lng") });
+        if (via != null) points.add(new double[]{ via.get("lat"), via.get("lng") });
+        points.add(new double[]{ dbl(dest,"lat"), dbl(dest,"lng") });
+        return routing.summary(points);
+    }
+
+    // ─── Candidate routes: engine alternatives, topped up with via-point detours ─
+    /**
+     * Feeds each distinct candidate's summary to {@code sink} as it is found and completes
+     * once no more will come; calls to sink never overlap. One engine call asks for up to
+     * gosafe.routing.alternatives routes. If fewer distinct ones come back and
+     * gosafe.routing.via-fallback is set, only as many via-point detours as routes are
+     * missing are routed, the next ones only if some of those fail or duplicate a route
+     * already found. Full paths are fetched later, only for the candidates that are kept.
+     */
+    private CompletableFuture<Void> candidateRoutes(Map<String, Object> originGeo, Map<String, Object> destGeo,
+                                                    Consumer<RouteSummary> sink) {
+        double[] from = { dbl(originGeo,"lat"), dbl(originGeo,"lng") };
+        double[] to   = { dbl(destGeo,"lat"),   dbl(destGeo,"lng") };
+        return routing.alternativeSummaries(from, to, alternatives)
+            .completeOnTimeout(List.of(), 15, TimeUnit.SECONDS)
+            .thenCompose(paths -> {
+                List<RouteSummary> found = new ArrayList<>();
+                offer(found, paths, sink);
+                if (!viaFallback) return CompletableFuture.completedFuture(null);
+                return detours(originGeo, destGeo, viaPoints(originGeo, destGeo), found, sink);
+            });
+    }
+
+    // Routes the next detours in order, just enough of them to fill the routes still missing
+    private CompletableFuture<Void> detours(Map<String, Object> originGeo, Map<String, Object> destGeo,
+                                            List<Map<String, Double>> vias, List<RouteSummary> found,
+                                            Consumer<RouteSummary> sink) {
+        int missing = alternatives - found.size();
+        if (missing <= 0 || vias.isEmpty()) return CompletableFuture.completedFuture(null);
+        List<CompletableFuture<RouteSummary>> wave = vias.subList(0, Math.min(missing, vias.size())).stream()
+            .map(via -> routeVia(originGeo, destGeo, via).completeOnTimeout(null, 15, TimeUnit.SECONDS))
+            .toList();
+        return CompletableFuture.allOf(wave.toArray(CompletableFuture[]::new)).thenCompose(done -> {
+            offer(found, wave.stream().map(CompletableFuture::join).filter(Objects::nonNull).toList(), sink);
+            return detours(originGeo, destGeo, vias.subList(wave.size(), vias.size()), found, sink);
+        });
+    }
+
+    private static void offer(List<RouteSummary> found, List<RouteSummary> routes, Consumer<RouteSummary> sink) {
+        for (RouteSummary r : routes) {
+            if (isDuplicate(found, r)) continue;
+            found.add(r);
+            sink.accept(r);
+        }
+    }
+
+    // Perpendicular detours at ±15% and +25% of the trip length from the midpoint
+    private List<Map<String, Double>> viaPoints(Map<String, Object> originGeo, Map<String, Object> destGeo) {
         double lat1 = dbl(originGeo,"lat"), lng1 = dbl(originGeo,"lng");
         double lat2 = dbl(destGeo,"lat"),   lng2 = dbl(destGeo,"lng");
 
@@ -135,243 +249,307 @@ public class RouteService {
         double perpLat = -dLng / len, perpLng = dLat / len;
         double dist = Math.sqrt(dLat*dLat + dLng*dLng);
 
-        Map<String, Double> via1 = Map.of("lat", midLat + perpLat*dist*0.15, "lng", midLng + perpLng*dist*0.15);
-        Map<String, Double> via2 = Map.of("lat", midLat - perpLat*dist*0.15, "lng", midLng - perpLng*dist*0.15);
-        Map<String, Double> via3 = Map.of("lat", midLat + perpLat*dist*0.25, "lng", midLng + perpLng*dist*0.25);
-
-        // Fire all 4 requests in parallel
-        ExecutorService pool = Executors.newFixedThreadPool(4);
-        Future<JsonNode> f1 = pool.submit(() -> fetchOSRMOne(originGeo, destGeo, null));
-        Future<JsonNode> f2 = pool.submit(() -> fetchOSRMOne(originGeo, destGeo, via1));
-        Future<JsonNode> f3 = pool.submit(() -> fetchOSRMOne(originGeo, destGeo, via2));
-        Future<JsonNode> f4 = pool.submit(() -> fetchOSRMOne(originGeo, destGeo, via3));
-        pool.shutdown();
-
-        List<JsonNode> candidates = new ArrayList<>();
-        for (Future<JsonNode> f : List.of(f1,f2,f3,f4)) {
-            try { JsonNode r = f.get(15, TimeUnit.SECONDS); if (r != null) candidates.add(r); }
-            catch (Exception ignored) {}
-        }
+        return List.of(
+            Map.of("lat", midLat + perpLat*dist*0.15, "lng", midLng + perpLng*dist*0.15),
+            Map.of("lat", midLat - perpLat*dist*0.15, "lng", midLng - perpLng*dist*0.15),
+            Map.of("lat", midLat + perpLat*dist*0.25, "lng", midLng + perpLng*dist*0.25));
+    }
 
-        if (candidates.isEmpty())
-            throw new RuntimeException("No drivable route found between these locations.");
+    private CompletableFuture<List<RoutePath>> buildRoutes(Map<String, Object> originGeo,
+                                                           Map<String, Object> destGeo) {
+        List<RouteSummary> candidates = Collections.synchronizedList(new ArrayList<>());
+        return candidateRoutes(originGeo, destGeo, candidates::add).thenCompose(done -> {
+            List<CompletableFuture<RoutePath>> full = pickDistinct(candidates).stream()
+                .map(c -> c.path().completeOnTimeout(null, 15, TimeUnit.SECONDS)).toList();
+            return CompletableFuture.allOf(full.toArray(CompletableFuture[]::new)).thenApply(all -> {
+                List<RoutePath> paths = full.stream().map(CompletableFuture::join).filter(Objects::nonNull).toList();
+                if (paths.isEmpty())
+                    throw new RuntimeException("No drivable route found between these locations.");
+                return paths;
+            });
+        });
+    }
 
-        // De-duplicate (same duration ±60s)
-        List<JsonNode> unique = new ArrayList<>();
-        for (JsonNode r : candidates) {
-            double dur = r.path("duration").asDouble();
-            boolean dup = unique.stream().anyMatch(u ->
-                Math.abs(u.path("duration").asDouble() - dur) < 60);
-            if (!dup) unique.add(r);
+    List<RouteSummary> pickDistinct(List<RouteSummary> candidates) {
+        List<RouteSummary> unique = new ArrayList<>();
+        synchronized (candidates) {
+            for (RouteSummary r : candidates)
+                if (!isDuplicate(unique, r)) unique.add(r);
         }
-        unique.sort(Comparator.comparingDouble(r -> r.path("duration").asDouble()));
-        return unique.subList(0, Math.min(3, unique.size()));
+        unique.sort(Comparator.comparingDouble(RouteSummary::duration));
+        return unique.subList(0, Math.min(alternatives, unique.size()));
+    }
+
+    // Same route found twice (typically a via detour that collapsed onto the direct path)
+    private static boolean isDuplicate(List<RouteSummary> routes, RouteSummary r) {
+        return routes.stream().anyMatch(u -> Math.abs(u.duration() - r.duration()) < 60
+            && Math.abs(u.distance() - r.distance()) < 0.02 * Math.max(u.distance(), r.distance()));
     }
 
     // ─── Overpass shops ───────────────────────────────────────────────────────
-    private List<Map<String, Object>> fetchShops(List<double[]> waypoints) {
-        try {
-            // Determine bounding box
-            List<double[]> useWpts = waypoints;
-            double latSpan = waypoints.stream().mapToDouble(w->w[0]).max().orElse(0)
-                           - waypoints.stream().mapToDouble(w->w[0]).min().orElse(0);
-            double lngSpan = waypoints.stream().mapToDouble(w->w[1]).max().orElse(0)
-                           - waypoints.stream().mapToDouble(w->w[1]).min().orElse(0);
-            if (latSpan > 1.0 || lngSpan > 1.0) {
-                int s = waypoints.size() / 3;
-                useWpts = waypoints.subList(s, s * 2);
-            }
-            final List<double[]> wp = useWpts;
-            double pad   = 0.008;
-            double south = wp.stream().mapToDouble(w->w[0]).min().orElse(0) - pad;
-            double north = wp.stream().mapToDouble(w->w[0]).max().orElse(0) + pad;
-            double west  = wp.stream().mapToDouble(w->w[1]).min().orElse(0) - pad;
-            double east  = wp.stream().mapToDouble(w->w[1]).max().orElse(0) + pad;
-
-            String bbox  = String.format(Locale.US, "%.5f,%.5f,%.5f,%.5f", south, west, north, east);
-            String query = "[out:json][timeout:18];" +
-                "(node[\"name\"][\"shop\"](" + bbox + ");" +
-                "node[\"name\"][\"amenity\"~\"restaurant|cafe|fast_food|bank|atm|pharmacy|supermarket|cinema|fuel|hospital|mall\"](" + bbox + ");" +
-                "node[\"name\"][\"brand\"](" + bbox + "););" +
-                "out 150;";
-
-            HttpHeaders h = new HttpHeaders();
-            h.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
-            String body = "data=" + enc(query);
-            ResponseEntity<String> res = http.exchange(OVERPASS, HttpMethod.POST,
-                    new HttpEntity<>(body, h), String.class);
-
-            JsonNode json = mapper.readTree(res.getBody());
-            Set<String> seen = new LinkedHashSet<>();
-            List<Map<String, Object>> shops = new ArrayList<>();
-
-            for (JsonNode el : json.path("elements")) {
-                JsonNode tags = el.path("tags");
-                String name = tags.has("brand") ? tags.get("brand").asText()
-                            : tags.has("name")  ? tags.get("name").asText() : null;
-                if (name == null || seen.contains(name)) continue;
-                seen.add(name);
-
-                String rawCat = tags.has("shop")    ? tags.get("shop").asText()
-                              : tags.has("amenity") ? tags.get("amenity").asText() : "shop";
-                Map<String, Object> s = new LinkedHashMap<>();
-                s.put("name",     name);
-                s.put("category", rawCat.replace("_", " ").toUpperCase());
-                s.put("icon",     ICON.getOrDefault(rawCat, "🏪"));
-                s.put("color",    COLOR.getOrDefault(rawCat, "#2e3450"));
-                s.put("lat",      el.path("lat").asDouble());
-                s.put("lng",      el.path("lon").asDouble());
-
-                List<String> parts = new ArrayList<>();
-                if (tags.has("addr:street"))  parts.add(tags.get("addr:street").asText());
-                if (tags.has("addr:suburb"))  parts.add(tags.get("addr:suburb").asText());
-                else if (tags.has("addr:city")) parts.add(tags.get("addr:city").asText());
-                s.put("station", parts.isEmpty() ? "Along route" : String.join(", ", parts));
-                shops.add(s);
-            }
-            return shops;
-        } catch (Exception e) { return List.of(); }
+    // A failed or timed-out shop lookup yields null: the route is still served without
+    // shops, but the search is marked incomplete so it is not cached as a good result.
+    private static CompletableFuture<List<Shop>> orNull(CompletableFuture<List<Shop>> shops) {
+        return shops.completeOnTimeout(null, 20, TimeUnit.SECONDS).exceptionally(e -> null);
     }
 
-    // ─── Safety scoring ───────────────────────────────────────────────────────
-    private Map<String, Object> scoreSafety(JsonNode r, int rank) {
-        double distKm      = r.path("distance").asDouble() / 1000;
-        double durationMin = r.path("duration").asDouble() / 60;
-        double urbanFactor = Math.min(15, (durationMin / Math.max(distKm, 0.1)) * 3);
-        int[] bases = {82, 71, 60};
-        double base  = (rank < bases.length ? bases[rank] : 55) + urbanFactor * 0.5;
-        int score    = (int) Math.round(Math.max(30, Math.min(96, base - Math.min(8, distKm / 60))));
-
-        List<Map<String, Object>> factors = List.of(
-            factor("Lighting Coverage", clamp(score + 9)),
-            factor("Crowd Density",     clamp(score + 3)),
-            factor("CCTV Coverage",     clamp(score - 4)),
-            factor("Emergency Access",  clamp(score + 6)),
-            factor("Incident History",  clamp(score - 7))
-        );
-        return Map.of("score", score, "factors", factors);
+    private CompletableFuture<List<Shop>> fetchShops(List<double[]> waypoints) {
+        CompletableFuture<List<Poi>> pois = fetchPois(Geohash.alongPath(waypoints, corridorMeters, PoiStore.PRECISION));
+        return SingleFlight.derived(pois, pois.thenApply(p -> shopsAlong(p, toShops(p), waypoints)));
+    }
+
+    // One Overpass lookup over the union corridor of all routes; POIs are then assigned
+    // to each route in memory, the same Shop instance shared where corridors overlap.
+    private CompletableFuture<List<List<Shop>>> fetchShopsMerged(List<List<double[]>> routes) {
+        Set<String> cells = new LinkedHashSet<>();
+        for (List<double[]> w : routes) cells.addAll(Geohash.alongPath(w, corridorMeters, PoiStore.PRECISION));
+        CompletableFuture<List<Poi>> found = fetchPois(cells);
+        return SingleFlight.derived(found, found.thenApply(pois -> {
+            List<Shop> shops = toShops(pois);
+            return routes.stream().map(w -> shopsAlong(pois, shops, w)).toList();
+        }));
+    }
+
+    /** POIs in the given geohash cells, from the tile store or straight from Overpass. */
+    private CompletableFuture<List<Poi>> fetchPois(Set<String> cells) {
+        return usePoiStore
+            ? poiStore.poisIn(cells, this::queryOverpass)
+            : queryOverpass(Geohash.runs(cells), OVERPASS_LIMIT);
+    }
+
+    private CompletableFuture<List<Poi>> queryOverpass(List<double[]> boxes, int limit) {
+        StringBuilder q = new StringBuilder("[out:json][timeout:18];(");
+        for (double[] box : boxes) {
+            String bbox = String.format(Locale.US, "%.5f,%.5f,%.5f,%.5f", box[0], box[1], box[2], box[3]);
+            q.append("node[\"name\"][\"shop\"](").append(bbox).append(");")
+             .append("node[\"name\"][\"amenity\"~\"restaurant|cafe|fast_food|bank|atm|pharmacy|supermarket|cinema|fuel|hospital|mall\"](").append(bbox).append(");")
+             .append("node[\"name\"][\"brand\"](").append(bbox).append(");");
+        }
+        String query = q.append(");out ").append(limit).append(";").toString();
+
+        return shopFlights.run(query, () -> UpstreamClient.parseAsync(
+            http.postFormStream(Upstream.OVERPASS, "", "data=" + enc(query)), this::parsePois, routeExecutor));
     }
-    private int clamp(int v) { return Math.min(98, Math.max(28, v)); }
-    private Map<String, Object> factor(String name, int score) {
-        return Map.of("name", name, "score", score);
+
+    /**
+     * POIs within corridorMeters of the route, ordered by distance along it, first one
+     * per name kept. Long routes are thinned evenly so the picks span the whole route.
+     */
+    List<Shop> shopsAlong(List<Poi> pois, List<Shop> shops, List<double[]> waypoints) {
+        CorridorIndex corridor = new CorridorIndex(waypoints, corridorMeters);
+        int n = pois.size();
+        double[] along = new double[n];
+        List<Integer> inside = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            along[i] = corridor.along(pois.get(i).getLat(), pois.get(i).getLng());
+            if (!Double.isNaN(along[i])) inside.add(i);
+        }
+        inside.sort(Comparator.comparingDouble(i -> along[i]));
+
+        Set<Object> seen = new HashSet<>();
+        List<Shop> ordered = new ArrayList<>();
+        for (int i : inside) if (seen.add(pois.get(i).getName())) ordered.add(shops.get(i));
+
+        if (ordered.size() <= MAX_SHOPS) return ordered;
+        List<Shop> picked = new ArrayList<>(MAX_SHOPS);
+        for (int k = 0; k < MAX_SHOPS; k++) picked.add(ordered.get(k * ordered.size() / MAX_SHOPS));
+        return picked;
+    }
+
+    List<Shop> toShops(List<Poi> pois) {
+        List<Shop> shops = new ArrayList<>(pois.size());
+        for (Poi p : pois) shops.add(toShop(p));
+        return shops;
+    }
+
+    private List<Poi> parsePois(InputStream body) {
+        try { return UpstreamJson.overpassPois(body); }
+        catch (IOException e) { throw new UncheckedIOException(e); }
+    }
+
+    private Shop toShop(Poi p) {
+        String rawCat = p.getCategory();
+        return new Shop(p.getName(),
+                        rawCat.replace("_", " ").toUpperCase(),
+                        ICON.getOrDefault(rawCat, "🏪"),
+                        COLOR.getOrDefault(rawCat, "#2e3450"),
+                        p.getLat(),
+                        p.getLng(),
+                        p.getStation());
     }
 
     // ─── Route labelling ──────────────────────────────────────────────────────
-    private Map<String, Object> labelRoute(JsonNode r, List<JsonNode> all) {
-        JsonNode fastest = all.get(0);
+    record Label(String name, String desc, List<String> badges) {}
+
+    Label labelRoute(RoutePath r, List<RoutePath> all) {
+        RoutePath fastest  = all.get(0);
         boolean isFastest  = r == fastest;
-        double myDist      = r.path("distance").asDouble();
-        double minDist     = all.stream().mapToDouble(x -> x.path("distance").asDouble()).min().orElse(0);
-        double maxDist     = all.stream().mapToDouble(x -> x.path("distance").asDouble()).max().orElse(0);
-        double fastDur     = fastest.path("duration").asDouble();
-        double pct         = fastDur > 0 ? ((r.path("duration").asDouble() - fastDur) / fastDur) * 100 : 0;
+        double myDist      = r.distance();
+        double minDist     = all.stream().mapToDouble(RoutePath::distance).min().orElse(0);
+        double maxDist     = all.stream().mapToDouble(RoutePath::distance).max().orElse(0);
+        double fastDur     = fastest.duration();
+        double pct         = fastDur > 0 ? ((r.duration() - fastDur) / fastDur) * 100 : 0;
+
+        if (isFastest)          return new Label("Fastest Route",  "Shortest travel time",              List.of("Recommended","Fast"));
+        if (myDist == minDist)  return new Label("Shortest Route", "Least distance travelled",          List.of("Efficient"));
+        if (myDist == maxDist)  return new Label("Scenic Route",   "Longer but less congested",         List.of("Scenic"));
+        return new Label("Alternate Route", "~" + (int)pct + "% longer, different path",                List.of("Alternate"));
+    }
 
-        if (isFastest)          return meta("Fastest Route",  "Shortest travel time",              List.of("Recommended","Fast"));
-        if (myDist == minDist)  return meta("Shortest Route", "Least distance travelled",          List.of("Efficient"));
-        if (myDist == maxDist)  return meta("Scenic Route",   "Longer but less congested",         List.of("Scenic"));
-        return meta("Alternate Route", "~" + (int)pct + "% longer, different path",                List.of("Alternate"));
+    // ─── PUBLIC: generate routes ──────────────────────────────────────────────
+    /** Ranked routes of one search; complete is false if any route's shop lookup failed. */
+    public record Routes(List<RouteResult> routes, boolean complete) {}
+
+    public List<RouteResult> generateRoutes(String origin, String destination) throws Exception {
+        return await(generateRoutesAsync(origin, destination));
     }
-    private Map<String, Object> meta(String name, String desc, List<String> badges) {
-        return Map.of("name", name, "desc", desc, "badges", badges);
+
+    public CompletableFuture<List<RouteResult>> generateRoutesAsync(String origin, String destination) {
+        return geocodeAsync(origin).thenCombine(geocodeAsync(destination), List::of)
+            .thenCompose(geo -> routesBetween(geo.get(0), geo.get(1)))
+            .thenApply(Routes::routes);
     }
 
-    // ─── Format duration ──────────────────────────────────────────────────────
-    private String fmtDur(double secs) {
-        int m = (int) Math.round(secs / 60);
-        return m < 60 ? m + " min" : (m/60) + "h " + (m%60) + "m";
+    /** Route pipeline for already geocoded endpoints: routing candidates, shops, scoring. */
+    public CompletableFuture<Routes> routesBetween(Map<String, Object> originGeo,
+                                                   Map<String, Object> destGeo) {
+        return buildRoutes(originGeo, destGeo).thenCompose(paths -> {
+            List<List<double[]>> wpts = paths.stream()
+                .map(RoutePath::waypoints).toList();
+            return shopsFor(wpts)
+                .thenApplyAsync(shops -> routes(originGeo, destGeo, paths, shops), routeExecutor);
+        });
     }
 
-    // ─── Extract waypoints from GeoJSON ──────────────────────────────────────
-    private List<double[]> geojsonToWaypoints(JsonNode geometry) {
-        List<double[]> pts = new ArrayList<>();
-        for (JsonNode c : geometry.path("coordinates"))
-            pts.add(new double[]{ c.get(1).asDouble(), c.get(0).asDouble() }); // [lat, lng]
-        return pts;
+    /**
+     * Streaming variant of {@link #routesBetween}: each distinct candidate is reported as soon
+     * as it is found and its full path is known (native alternatives arrive with theirs, so
+     * they are reported right away, before any detour is routed), and its shop lookup starts
+     * right away, so shops are reported per route as they arrive. A detour that duplicates a
+     * route already reported is never reported. The result is the same ranked list.
+     */
+    public CompletableFuture<Routes> routesBetween(Map<String, Object> originGeo,
+                                                   Map<String, Object> destGeo,
+                                                   RouteListener listener) {
+        // Appended to by candidateRoutes' sink, whose calls never overlap
+        List<CompletableFuture<RoutePath>>  paths = new ArrayList<>();
+        List<CompletableFuture<List<Shop>>> shops = new ArrayList<>();
+        return candidateRoutes(originGeo, destGeo, summary -> {
+            int candidate = paths.size();
+            CompletableFuture<RoutePath> path = summary.path().completeOnTimeout(null, 15, TimeUnit.SECONDS);
+            paths.add(path);
+            shops.add(path.thenCompose(r -> {
+                if (r == null) return CompletableFuture.completedFuture(List.<Shop>of());
+                listener.onRoute(candidate, new RouteCandidate(candidate, r.duration(), r.distance(),
+                                                               RouteGeometry.of(r), stopsOf(r)));
+                CompletableFuture<List<Shop>> s = orNull(fetchShops(r.waypoints()));
+                s.thenAccept(list -> listener.onShops(candidate, list != null ? list : List.of()));
+                return s;
+            }));
+        }).thenCompose(done -> {
+            List<CompletableFuture<?>> pending = new ArrayList<>(paths);
+            pending.addAll(shops);
+            return CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new)).thenApplyAsync(all -> {
+                List<Integer> found = new ArrayList<>();
+                for (int i = 0; i < paths.size(); i++) if (paths.get(i).join() != null) found.add(i);
+                if (found.isEmpty())
+                    throw new RuntimeException("No drivable route found between these locations.");
+                found.sort(Comparator.comparingDouble(i -> paths.get(i).join().duration()));
+                List<RoutePath>  kept      = found.stream().map(i -> paths.get(i).join()).toList();
+                List<List<Shop>> keptShops = found.stream().map(i -> shops.get(i).join()).toList();
+                return routes(originGeo, destGeo, kept, keptShops);
+            }, routeExecutor);
+        });
     }
 
-    // ─── PUBLIC: generate routes ──────────────────────────────────────────────
-    @SuppressWarnings("unchecked")
-    public List<Map<String, Object>> generateRoutes(String origin, String destination) throws Exception {
-        Map<String, Object> originGeo = geocode(origin);
-        Map<String, Object> destGeo   = geocode(destination);
-        List<JsonNode> osrmRoutes     = buildThreeRoutes(originGeo, destGeo);
+    // Shops per route, null where the lookup failed or timed out
+    private CompletableFuture<List<List<Shop>>> shopsFor(List<List<double[]>> wpts) {
+        if (mergeOverpass) {
+            List<List<Shop>> failed = Collections.nCopies(wpts.size(), null);
+            return fetchShopsMerged(wpts).completeOnTimeout(failed, 20, TimeUnit.SECONDS)
+                .exceptionally(e -> failed);
+        }
 
         // Fetch shops for all routes in parallel
-        ExecutorService pool = Executors.newFixedThreadPool(osrmRoutes.size());
-        List<Future<List<Map<String, Object>>>> shopFutures = new ArrayList<>();
-        for (JsonNode r : osrmRoutes) {
-            List<double[]> wpts = geojsonToWaypoints(r.path("geometry"));
-            shopFutures.add(pool.submit(() -> fetchShops(wpts)));
-        }
-        pool.shutdown();
-
-        List<Map<String, Object>> routes = new ArrayList<>();
-        for (int i = 0; i < osrmRoutes.size(); i++) {
-            JsonNode r = osrmRoutes.get(i);
-            Map<String, Object> safety = scoreSafety(r, i);
-            Map<String, Object> label  = labelRoute(r, osrmRoutes);
-
-            List<Map<String, Object>> shops = List.of();
-            try { shops = shopFutures.get(i).get(20, TimeUnit.SECONDS); } catch (Exception ignored) {}
-            shops = shops.subList(0, Math.min(30, shops.size()));
-
-            // Stops from steps
-            List<Map<String, Object>> stops = new ArrayList<>();
-            JsonNode legs = r.path("legs");
-            int stepIdx = 0;
-            outer:
-            for (JsonNode leg : legs) {
-                for (JsonNode step : leg.path("steps")) {
-                    String name = step.path("name").asText("").trim();
-                    if (!name.isEmpty() && !name.equals("undefined") && stepIdx > 0 && stepIdx % 4 == 0) {
-                        JsonNode loc = step.path("maneuver").path("location");
-                        stops.add(Map.of("lat", loc.get(1).asDouble(), "lng", loc.get(0).asDouble(), "name", name));
-                        if (stops.size() >= 8) break outer;
-                    }
-                    stepIdx++;
-                }
-            }
+        List<CompletableFuture<List<Shop>>> shopFutures = new ArrayList<>();
+        for (List<double[]> w : wpts) shopFutures.add(orNull(fetchShops(w)));
+        return CompletableFuture.allOf(shopFutures.toArray(CompletableFuture[]::new))
+            .thenApply(done -> shopFutures.stream().map(CompletableFuture::join).toList());
+    }
+
+    private Routes routes(Map<String, Object> originGeo, Map<String, Object> destGeo,
+                          List<RoutePath> paths, List<List<Shop>> shopsPerRoute) {
+        boolean complete = shopsPerRoute.stream().noneMatch(Objects::isNull);
+        List<List<Shop>> shops = shopsPerRoute.stream().map(s -> s != null ? s : List.<Shop>of()).toList();
+        return new Routes(assembleRoutes(originGeo, destGeo, paths, shops), complete);
+    }
+
+    List<RouteResult> assembleRoutes(Map<String, Object> originGeo, Map<String, Object> destGeo,
+                                     List<RoutePath> paths, List<List<Shop>> shopsPerRoute) {
+        String from = ((String) originGeo.get("display")).split(",")[0];
+        String to   = ((String) destGeo.get("display")).split(",")[0];
+        long   now  = System.currentTimeMillis();
+
+        List<RouteResult> routes = new ArrayList<>();
+        for (int i = 0; i < paths.size(); i++) {
+            RoutePath  r     = paths.get(i);
+            List<Shop> shops = shopsPerRoute.get(i);
+            Label      label = labelRoute(r, paths);
 
             // Brands
             Set<String> brandSet = new LinkedHashSet<>();
-            for (Map<String, Object> s : shops) brandSet.add((String) s.get("name"));
+            for (Shop s : shops) brandSet.add(s.name());
             List<String> brands = new ArrayList<>(brandSet);
             if (brands.size() > 12) brands = brands.subList(0, 12);
 
-            // Waypoints as list of {lat, lng} maps
-            List<Map<String, Object>> waypointMaps = new ArrayList<>();
-            for (double[] w : geojsonToWaypoints(r.path("geometry")))
-                waypointMaps.add(Map.of("lat", w[0], "lng", w[1]));
-
-            Map<String, Object> route = new LinkedHashMap<>();
-            route.put("id",            "route-" + i + "-" + System.currentTimeMillis());
-            route.put("name",          label.get("name"));
-            route.put("description",   label.get("desc"));
-            route.put("safetyScore",   safety.get("score"));
-            route.put("safetyFactors", safety.get("factors"));
-            route.put("duration",      fmtDur(r.path("duration").asDouble()));
-            route.put("distance",      String.format(Locale.US, "%.1f km", r.path("distance").asDouble() / 1000));
-            route.put("durationSecs",  r.path("duration").asDouble());
-            route.put("transfers",     i);
-            route.put("totalShops",    shops.size());
-            route.put("brands",        brands);
-            route.put("badges",        label.get("badges"));
-            route.put("waypoints",     waypointMaps);
-            route.put("stops",         stops);
-            route.put("shops",         shops);
-            route.put("originStation", ((String) originGeo.get("display")).split(",")[0]);
-            route.put("destStation",   ((String) destGeo.get("display")).split(",")[0]);
-            routes.add(route);
+            routes.add(new RouteResult("route-" + i + "-" + now, label.name(), label.desc(),
+                                       safetyScorer.score(r, i, shops.size()), r.duration(), r.distance(), i,
+                                       brands, label.badges(), RouteGeometry.of(r), stopsOf(r), shops, from, to));
         }
 
         // Sort by safetyScore desc
-        routes.sort((a, b) -> Integer.compare((int) b.get("safetyScore"), (int) a.get("safetyScore")));
+        routes.sort((a, b) -> Integer.compare(b.safety().score(), a.safety().score()));
         return routes;
     }
 
+    // Stops from steps
+    private static List<RouteResult.Stop> stopsOf(RoutePath r) {
+        List<RouteResult.Stop> stops = new ArrayList<>();
+        int stepIdx = 0;
+        for (RoutePath.Step step : r.steps()) {
+            String name = step.name().trim();
+            if (!name.isEmpty() && !name.equals("undefined") && stepIdx > 0 && stepIdx % 4 == 0) {
+                stops.add(new RouteResult.Stop(step.lat(), step.lng(), name));
+                if (stops.size() >= 8) return stops;
+            }
+            stepIdx++;
+        }
+        return stops;
+    }
+
     // ─── Utilities ────────────────────────────────────────────────────────────
     private double dbl(Map<String, Object> m, String k) { return ((Number) m.get(k)).doubleValue(); }
     private String enc(String s) { return URLEncoder.encode(s, StandardCharsets.UTF_8); }
+    private JsonNode readTree(String body) {
+        try { return mapper.readTree(body); }
+        catch (IOException e) { throw new UncheckedIOException(e); }
+    }
+    /** Blocking wait that rethrows the original failure rather than an ExecutionException. */
+    private static <T> T await(CompletableFuture<T> f) throws Exception {
+        try { return f.get(); }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) throw cause;
+            throw e;
+        }
+    }
+
+    /** Cache key for a place query: lower-case, punctuation dropped, whitespace collapsed. */
+    static String normalizeQuery(String q) {
+        return q.toLowerCase(Locale.ROOT)
+                .replaceAll("[\\p{Punct}\\p{IsPunctuation}]", " ")
+                .replaceAll("\\s+", " ")
+                .trim();
+    }
     private String firstNonNull(JsonNode node, String... keys) {
         for (String k : keys) if (node.has(k)) return node.get(k).asText();
         return null;
@@ -0,0 +1,22 @@
+package com.gosafe.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * A candidate route's totals from a {@link RoutingEngine}: travel time (s) and
+ * length (m), enough to rank and de-duplicate candidates. Geometry and steps
+ * are fetched on demand with {@link #path()}, so only the routes kept pay for them.
+ */
+public record RouteSummary(double duration, double distance, Supplier<CompletableFuture<RoutePath>> fetch) {
+
+    /** The full route; completes with null when it could not be fetched, never exceptionally. */
+    public CompletableFuture<RoutePath> path() {
+        return fetch.get();
+    }
+
+    /** Summary of a route that is already complete. */
+    public static RouteSummary of(RoutePath r) {
+        return new RouteSummary(r.duration(), r.distance(), () -> CompletableFuture.completedFuture(r));
+    }
+}
@@ -0,0 +1,39 @@
+package com.gosafe.service;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Driving directions. Selected by gosafe.routing.engine: "osrm" (default, the
+ * OSRM HTTP API) or "local" (in-process search over a preprocessed road graph).
+ */
+public interface RoutingEngine {
+
+    /**
+     * Fastest route visiting the given {lat, lng} points in order. Completes with
+     * null when there is no route or the engine failed; never exceptionally.
+     */
+    CompletableFuture<RoutePath> route(List<double[]> points);
+
+    /**
+     * Up to k genuinely different routes from one {lat, lng} to another, fastest first,
+     * in one computation. Completes with an empty list on failure; never exceptionally.
+     */
+    default CompletableFuture<List<RoutePath>> alternatives(double[] from, double[] to, int k) {
+        return route(List.of(from, to)).thenApply(r -> r == null ? List.of() : List.of(r));
+    }
+
+    /**
+     * Totals of {@link #route}, with the full path fetched on demand. Engines for which
+     * geometry is costly to transfer answer with a lighter request; by default the full
+     * route is computed up front. Completes with null on failure; never exceptionally.
+     */
+    default CompletableFuture<RouteSummary> summary(List<double[]> points) {
+        return route(points).thenApply(r -> r == null ? null : RouteSummary.of(r));
+    }
+
+    /** Totals of {@link #alternatives}, fastest first, with each full path fetched on demand. */
+    default CompletableFuture<List<RouteSummary>> alternativeSummaries(double[] from, double[] to, int k) {
+        return alternatives(from, to, k).thenApply(rs -> rs.stream().map(RouteSummary::of).toList());
+    }
+}
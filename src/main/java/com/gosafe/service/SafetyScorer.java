@@ -0,0 +1,174 @@
+package com.gosafe.service;
+
+import com.gosafe.geo.CoverageGrid;
+import com.gosafe.geo.Polylines;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Route safety scores from spatial layers loaded at startup.
+ *
+ * Each layer is read from CSV files ({@code lat,lng[,weight]}, header optional)
+ * in gosafe.safety.layers-dir into a {@link CoverageGrid}. A route is resampled
+ * every gosafe.safety.sample-meters and each factor is the share of samples the
+ * layer covers: lighting, CCTV and emergency access score higher with more
+ * coverage, incident history lower. Crowd density comes from shops per km.
+ *
+ * Factors whose layer has no data keep the heuristic value; with no layers at
+ * all the heuristic score (rank, urban density, length) is used unchanged.
+ */
+@Service
+public class SafetyScorer {
+
+    private static final Logger log = LoggerFactory.getLogger(SafetyScorer.class);
+
+    private static final double SHOPS_PER_KM_FULL = 5;   // crowd density scores 98 at this many shops / km
+
+    enum Layer {
+        LIGHTING ("Lighting Coverage",  40,   0.3, false, "lighting.csv"),
+        CCTV     ("CCTV Coverage",      100,  0.2, false, "cctv.csv"),
+        EMERGENCY("Emergency Access",   2000, 0.2, false, "police.csv", "hospitals.csv"),
+        INCIDENTS("Incident History",   250,  0.2, true,  "incidents.csv");
+
+        final String   factor;
+        final double   radiusMeters, weight;
+        final boolean  negative;
+        final String[] files;
+
+        Layer(String factor, double radiusMeters, double weight, boolean negative, String... files) {
+            this.factor       = factor;
+            this.radiusMeters = radiusMeters;
+            this.weight       = weight;
+            this.negative     = negative;
+            this.files        = files;
+        }
+    }
+
+    /** Overall score (28..98) and its per-factor breakdown. */
+    public record Score(int score, List<Factor> factors) {}
+    public record Factor(String name, int score) {}
+
+    private static final String CROWD        = "Crowd Density";
+    private static final double CROWD_WEIGHT = 0.1;
+
+    private final EnumMap<Layer, CoverageGrid> grids = new EnumMap<>(Layer.class);
+    private final double sampleMeters;
+    private final Timer  scoreTimer;
+
+    public SafetyScorer(MeterRegistry registry,
+                        @Value("${gosafe.safety.layers-dir}") Path layersDir,
+                        @Value("${gosafe.safety.sample-meters}") double sampleMeters) {
+        this.sampleMeters = sampleMeters;
+        this.scoreTimer   = registry.timer("gosafe.safety.score");
+        for (Layer layer : Layer.values()) {
+            CoverageGrid grid = load(layersDir, layer);
+            if (grid != null) grids.put(layer, grid);
+        }
+        if (grids.isEmpty()) log.info("No safety layers in {}; using heuristic safety scores", layersDir);
+    }
+
+    /** Safety of the route at the given rank (by travel time) with shopCount shops along it. */
+    public Score score(RoutePath r, int rank, int shopCount) {
+        Score heuristic = heuristic(r, rank);
+        if (grids.isEmpty()) return heuristic;
+        return scoreTimer.record(() -> layered(r, shopCount, heuristic));
+    }
+
+    private Score layered(RoutePath r, int shopCount, Score heuristic) {
+        Map<String, Integer> fallback = new HashMap<>();
+        for (Factor f : heuristic.factors()) fallback.put(f.name(), f.score());
+
+        double[][] samples = Polylines.resample(r.lat(), r.lng(), sampleMeters);
+        double[] lat = samples[0], lng = samples[1];
+
+        double perKm = shopCount / Math.max(r.distance() / 1000, 0.1);
+        int crowd    = clamp((int) Math.round(30 + 68 * Math.min(1, perKm / SHOPS_PER_KM_FULL)));
+
+        List<Factor> factors = new ArrayList<>();
+        double total = 0;
+        for (Layer layer : Layer.values()) {
+            CoverageGrid grid = grids.get(layer);
+            int value;
+            if (grid == null) {
+                value = fallback.get(layer.factor);
+            } else {
+                double f = grid.coverage(lat, lng, lat.length);
+                value = clamp((int) Math.round(layer.negative ? 98 - 70 * f : 30 + 68 * f));
+            }
+            total += layer.weight * value;
+            factors.add(new Factor(layer.factor, value));
+            if (layer == Layer.LIGHTING) factors.add(new Factor(CROWD, crowd));    // keep the familiar order
+        }
+        total += CROWD_WEIGHT * crowd;
+        return new Score((int) Math.round(total), factors);
+    }
+
+    // ─── Heuristic (no layers) ────────────────────────────────────────────────
+    private Score heuristic(RoutePath r, int rank) {
+        double distKm      = r.distance() / 1000;
+        double durationMin = r.duration() / 60;
+        double urbanFactor = Math.min(15, (durationMin / Math.max(distKm, 0.1)) * 3);
+        int[] bases = {82, 71, 60};
+        double base  = (rank < bases.length ? bases[rank] : 55) + urbanFactor * 0.5;
+        int score    = (int) Math.round(Math.max(30, Math.min(96, base - Math.min(8, distKm / 60))));
+
+        List<Factor> factors = List.of(
+            new Factor("Lighting Coverage", clamp(score + 9)),
+            new Factor(CROWD,               clamp(score + 3)),
+            new Factor("CCTV Coverage",     clamp(score - 4)),
+            new Factor("Emergency Access",  clamp(score + 6)),
+            new Factor("Incident History",  clamp(score - 7))
+        );
+        return new Score(score, factors);
+    }
+    private static int clamp(int v) { return Math.min(98, Math.max(28, v)); }
+
+    // ─── Layer loading ────────────────────────────────────────────────────────
+    private static CoverageGrid load(Path dir, Layer layer) {
+        List<double[]> points = new ArrayList<>();
+        for (String name : layer.files) {
+            Path file = dir.resolve(name);
+            if (!Files.isReadable(file)) continue;
+            try (BufferedReader in = Files.newBufferedReader(file)) {
+                String line;
+                int lineNo = 0;
+                while ((line = in.readLine()) != null) {
+                    lineNo++;
+                    line = line.strip();
+                    if (line.isEmpty() || line.startsWith("#")) continue;
+                    String[] cols = line.split(",");
+                    try {
+                        double lat = Double.parseDouble(cols[0].strip());
+                        double lng = Double.parseDouble(cols[1].strip());
+                        double w   = cols.length > 2 ? Double.parseDouble(cols[2].strip()) : 1;
+                        points.add(new double[]{ lat, lng, w });
+                    } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                        if (lineNo > 1) log.warn("Skipping bad line {} of {}: {}", lineNo, file, line);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read safety layer " + file, e);
+            }
+        }
+        if (points.isEmpty()) return null;
+
+        long start = System.nanoTime();
+        double refLat = points.stream().mapToDouble(p -> p[0]).average().orElse(0);
+        CoverageGrid grid = new CoverageGrid(layer.radiusMeters, refLat);
+        for (double[] p : points) grid.add(p[0], p[1], (float) p[2]);
+        log.info("Loaded safety layer {}: {} points, {} tiles in {} ms", layer, points.size(),
+                 grid.tileCount(), (System.nanoTime() - start) / 1_000_000);
+        return grid;
+    }
+}
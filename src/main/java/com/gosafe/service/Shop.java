@@ -0,0 +1,5 @@
+package com.gosafe.service;
+
+/** A named POI along a route, as shown in route results. */
+public record Shop(String name, String category, String icon, String color,
+                   double lat, double lng, String station) {}
@@ -0,0 +1,371 @@
+package com.gosafe.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Non-blocking HTTP access to the public OpenStreetMap services.
+ *
+ * Each upstream gets its own JDK HttpClient (keep-alive pool, HTTP/2 where the
+ * server offers it), its own connect / request timeouts, a cap on how many
+ * requests may be in flight to it at once and a token bucket limiting the
+ * request rate. Calls return futures; no thread is parked while waiting on the
+ * network or for a token.
+ *
+ * Requests queue in two lanes. HIGH (the default) is always dispatched first.
+ * LOW is for best-effort traffic such as autocomplete: a LOW request may carry
+ * a supersede key, and a newer LOW request with the same key drops the queued
+ * one; LOW requests are also dropped when the lane is full. A request that has
+ * waited longer than its lane's max wait (high-max-wait, low-max-wait) is
+ * dropped, and one whose future was already completed or cancelled by the
+ * caller is skipped without being sent. Dropped requests fail with
+ * {@link DroppedException}.
+ *
+ * The *Stream variants hand back the response body as an InputStream for
+ * incremental parsing; the request keeps its in-flight slot until the caller
+ * closes the stream, so always close it.
+ *
+ * Configured under gosafe.upstream.{nominatim,osrm,overpass}.*
+ */
+@Component
+public class UpstreamClient {
+
+    public enum Upstream { NOMINATIM, OSRM, OVERPASS }
+
+    public enum Priority { HIGH, LOW }
+
+    /** Non-2xx answer from an upstream. */
+    public static class UpstreamException extends RuntimeException {
+        private final int status;
+        public UpstreamException(Upstream u, int status) {
+            super(u + " responded with HTTP " + status);
+            this.status = status;
+        }
+        public int getStatus() { return status; }
+    }
+
+    /** A request that was never sent: superseded, lane full or waited too long. */
+    public static class DroppedException extends RuntimeException {
+        public DroppedException(Upstream u, String reason) {
+            super(u + " request dropped: " + reason);
+        }
+    }
+
+    private static final String USER_AGENT = "GoSafe-IndiaTransit/1.0";
+
+    private final Map<Upstream, Host> hosts = new EnumMap<>(Upstream.class);
+
+    public UpstreamClient(Environment env, MeterRegistry registry) {
+        for (Upstream u : Upstream.values()) hosts.put(u, new Host(env, registry, u));
+    }
+
+    /** GET baseUrl + pathAndQuery in the HIGH lane, body as a string. */
+    public CompletableFuture<String> get(Upstream u, String pathAndQuery) {
+        return get(u, pathAndQuery, Priority.HIGH, null);
+    }
+
+    /** GET in the given lane; a LOW request with a supersedeKey replaces the caller's previous queued one. */
+    public CompletableFuture<String> get(Upstream u, String pathAndQuery, Priority lane, String supersedeKey) {
+        Host h = hosts.get(u);
+        return h.send(h.request(pathAndQuery).GET().build(), lane, supersedeKey);
+    }
+
+    /** GET in the HIGH lane, body as a stream the caller must close. */
+    public CompletableFuture<InputStream> getStream(Upstream u, String pathAndQuery) {
+        Host h = hosts.get(u);
+        return h.stream(h.request(pathAndQuery).GET().build(), Priority.HIGH, null);
+    }
+
+    /** POST an application/x-www-form-urlencoded body to baseUrl + path (HIGH lane). */
+    public CompletableFuture<String> postForm(Upstream u, String path, String formBody) {
+        Host h = hosts.get(u);
+        return h.send(h.formPost(path, formBody), Priority.HIGH, null);
+    }
+
+    /** {@link #postForm} with the body as a stream the caller must close. */
+    public CompletableFuture<InputStream> postFormStream(Upstream u, String path, String formBody) {
+        Host h = hosts.get(u);
+        return h.stream(h.formPost(path, formBody), Priority.HIGH, null);
+    }
+
+    /**
+     * A streamed body parsed on executor. Giving up on the returned future cancels the
+     * request, or closes the stream if it has already arrived, so the slot is not leaked.
+     */
+    public static <T> CompletableFuture<T> parseAsync(CompletableFuture<InputStream> body,
+                                                      Function<InputStream, T> parser, Executor executor) {
+        CompletableFuture<T> parsed = body.thenApplyAsync(parser, executor);
+        parsed.whenComplete((v, err) -> {
+            if (!body.cancel(false) && parsed.isCancelled()) body.thenAccept(UpstreamClient::closeQuietly);
+        });
+        return parsed;
+    }
+
+    // ─── One configured upstream ──────────────────────────────────────────────
+    private static final class Host {
+        final Upstream   upstream;
+        final String     baseUrl;
+        final Duration   timeout;
+        final HttpClient client;
+        final Scheduler  scheduler;
+
+        Host(Environment env, MeterRegistry registry, Upstream u) {
+            String p = "gosafe.upstream." + u.name().toLowerCase() + ".";
+            this.upstream  = u;
+            this.baseUrl   = env.getRequiredProperty(p + "url");
+            this.timeout   = env.getRequiredProperty(p + "timeout", Duration.class);
+            this.scheduler = new Scheduler(u, registry,
+                    env.getRequiredProperty(p + "max-connections", Integer.class),
+                    env.getProperty(p + "rate-per-second", Double.class, 0d),
+                    env.getProperty(p + "burst", Integer.class, 1),
+                    env.getProperty(p + "high-max-wait", Duration.class, Duration.ofSeconds(10)),
+                    env.getProperty(p + "low-queue-capacity", Integer.class, 32),
+                    env.getProperty(p + "low-max-wait", Duration.class, Duration.ofSeconds(5)));
+            this.client    = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_2)
+                    .connectTimeout(env.getRequiredProperty(p + "connect-timeout", Duration.class))
+                    .followRedirects(HttpClient.Redirect.NORMAL)
+                    .build();
+        }
+
+        HttpRequest.Builder request(String path) {
+            return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .timeout(timeout)
+                    .header("User-Agent",      USER_AGENT)
+                    .header("Accept-Language", "en");
+        }
+
+        HttpRequest formPost(String path, String formBody) {
+            return request(path)
+                    .header("Content-Type", "application/x-www-form-urlencoded")
+                    .POST(HttpRequest.BodyPublishers.ofString(formBody))
+                    .build();
+        }
+
+        CompletableFuture<String> send(HttpRequest req, Priority lane, String supersedeKey) {
+            return exchange(req, HttpResponse.BodyHandlers.ofString(), lane, supersedeKey, (body, release) -> {
+                release.run();
+                return body;
+            });
+        }
+
+        // The body arrives after the headers, so the slot is freed when the stream is closed
+        CompletableFuture<InputStream> stream(HttpRequest req, Priority lane, String supersedeKey) {
+            return exchange(req, HttpResponse.BodyHandlers.ofInputStream(), lane, supersedeKey, ReleasingStream::new);
+        }
+
+        /** Sends once scheduled; finish gets the 2xx body and the (idempotent) slot release. */
+        <T> CompletableFuture<T> exchange(HttpRequest req, HttpResponse.BodyHandler<T> handler, Priority lane,
+                                          String supersedeKey, BiFunction<T, Runnable, T> finish) {
+            CompletableFuture<T> result = new CompletableFuture<>();
+            scheduler.submit(new Job(lane, supersedeKey, result, () -> {
+                AtomicBoolean released = new AtomicBoolean();
+                Runnable release = () -> { if (released.compareAndSet(false, true)) scheduler.release(); };
+                try {
+                    client.sendAsync(req, handler)
+                          .whenComplete((res, err) -> {
+                              if (err != null) {
+                                  release.run();
+                                  result.completeExceptionally(err);
+                              } else if (res.statusCode() / 100 != 2) {
+                                  if (res.body() instanceof InputStream in) closeQuietly(in);
+                                  release.run();
+                                  result.completeExceptionally(new UpstreamException(upstream, res.statusCode()));
+                              } else {
+                                  T body = finish.apply(res.body(), release);
+                                  if (!result.complete(body) && body instanceof InputStream in) closeQuietly(in);
+                              }
+                          });
+                } catch (RuntimeException e) {
+                    release.run();
+                    result.completeExceptionally(e);
+                }
+            }));
+            return result;
+        }
+    }
+
+    private static final class ReleasingStream extends FilterInputStream {
+        private final Runnable release;
+
+        ReleasingStream(InputStream in, Runnable release) {
+            super(in);
+            this.release = release;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try { super.close(); }
+            finally { release.run(); }
+        }
+    }
+
+    private static void closeQuietly(InputStream in) {
+        try { in.close(); } catch (IOException ignored) { }
+    }
+
+    record Job(Priority lane, String key, CompletableFuture<?> result, Runnable start, long queuedAt) {
+        Job(Priority lane, String key, CompletableFuture<?> result, Runnable start) {
+            this(lane, key, result, start, System.nanoTime());
+        }
+    }
+
+    // ─── Per-host lanes, in-flight limit and token bucket ─────────────────────
+    static final class Scheduler {
+        private final Upstream upstream;
+        private final int      maxInFlight;
+        private final double   tokensPerNano;   // 0 = no rate limit
+        private final double   burst;
+        private final long     highMaxWaitNanos;
+        private final int      lowCapacity;
+        private final long     lowMaxWaitNanos;
+
+        private int     inFlight;
+        private double  tokens;
+        private long    refilledAt = System.nanoTime();
+        private boolean timerArmed;
+        private final ArrayDeque<Job>  high      = new ArrayDeque<>();
+        private final ArrayDeque<Job>  low       = new ArrayDeque<>();
+        private final Map<String, Job> lowByKey  = new HashMap<>();
+
+        private final Map<Priority, Timer> waits = new EnumMap<>(Priority.class);
+        private final Counter superseded, overflow, expired, abandoned;
+
+        Scheduler(Upstream u, MeterRegistry registry, int maxInFlight, double ratePerSecond, int burst,
+                  Duration highMaxWait, int lowCapacity, Duration lowMaxWait) {
+            this.upstream         = u;
+            this.maxInFlight      = maxInFlight;
+            this.tokensPerNano    = ratePerSecond / 1e9;
+            this.burst            = Math.max(1, burst);
+            this.tokens           = this.burst;
+            this.highMaxWaitNanos = highMaxWait.toNanos();
+            this.lowCapacity      = lowCapacity;
+            this.lowMaxWaitNanos  = lowMaxWait.toNanos();
+
+            String name = u.name().toLowerCase();
+            for (Priority lane : Priority.values()) {
+                String l = lane.name().toLowerCase();
+                waits.put(lane, Timer.builder("gosafe.upstream.queue.wait")
+                        .tags("upstream", name, "lane", l).register(registry));
+                ArrayDeque<Job> q = lane == Priority.HIGH ? high : low;
+                Gauge.builder("gosafe.upstream.queue.size", this, s -> s.queued(q))
+                        .tags("upstream", name, "lane", l).register(registry);
+            }
+            this.superseded = registry.counter("gosafe.upstream.dropped", "upstream", name, "reason", "superseded");
+            this.overflow   = registry.counter("gosafe.upstream.dropped", "upstream", name, "reason", "overflow");
+            this.expired    = registry.counter("gosafe.upstream.dropped", "upstream", name, "reason", "expired");
+            this.abandoned  = registry.counter("gosafe.upstream.dropped", "upstream", name, "reason", "abandoned");
+        }
+
+        void submit(Job job) {
+            List<Runnable> dropped = new ArrayList<>(1);
+            synchronized (this) {
+                if (job.lane() == Priority.HIGH) {
+                    high.add(job);
+                } else {
+                    Job previous = job.key() == null ? null : lowByKey.put(job.key(), job);
+                    if (previous != null && low.remove(previous)) drop(dropped, previous, superseded, "superseded");
+                    if (low.size() >= lowCapacity) drop(dropped, forget(low.poll()), overflow, "queue full");
+                    low.add(job);
+                }
+            }
+            dropped.forEach(Runnable::run);
+            pump();
+        }
+
+        void release() {
+            synchronized (this) { inFlight--; }
+            pump();
+        }
+
+        /** Starts as many queued jobs as the in-flight cap and the bucket allow, HIGH first. */
+        private void pump() {
+            List<Job>      ready   = new ArrayList<>();
+            List<Runnable> dropped = new ArrayList<>();
+            long waitNanos = 0;
+            synchronized (this) {
+                long now = System.nanoTime();
+                discard(high, highMaxWaitNanos, now, dropped);
+                discard(low,  lowMaxWaitNanos,  now, dropped);
+                while (inFlight < maxInFlight && !(high.isEmpty() && low.isEmpty())) {
+                    if (tokensPerNano > 0) {
+                        tokens = Math.min(burst, tokens + (now - refilledAt) * tokensPerNano);
+                        refilledAt = now;
+                        if (tokens < 1) {
+                            if (!timerArmed) {
+                                timerArmed = true;
+                                waitNanos  = (long) Math.ceil((1 - tokens) / tokensPerNano);
+                            }
+                            break;
+                        }
+                        tokens -= 1;
+                    }
+                    inFlight++;
+                    ready.add(high.isEmpty() ? forget(low.poll()) : high.poll());
+                    discard(high, highMaxWaitNanos, now, dropped);
+                    discard(low,  lowMaxWaitNanos,  now, dropped);
+                }
+            }
+            if (waitNanos > 0) {
+                CompletableFuture.delayedExecutor(waitNanos, TimeUnit.NANOSECONDS).execute(() -> {
+                    synchronized (this) { timerArmed = false; }
+                    pump();
+                });
+            }
+            dropped.forEach(Runnable::run);
+            long now = System.nanoTime();
+            for (Job j : ready) {
+                waits.get(j.lane()).record(now - j.queuedAt(), TimeUnit.NANOSECONDS);
+                j.start().run();
+            }
+        }
+
+        // Called with the lock held: removes head jobs whose caller gave up or that waited too long,
+        // so they take neither a token nor a slot
+        private void discard(ArrayDeque<Job> q, long maxWaitNanos, long now, List<Runnable> dropped) {
+            while (!q.isEmpty()) {
+                Job j = q.peek();
+                if (j.result().isDone())                   abandoned.increment();
+                else if (now - j.queuedAt() > maxWaitNanos) drop(dropped, j, expired, "waited too long");
+                else return;
+                forget(q.poll());
+            }
+        }
+
+        // Called with the lock held
+        private Job forget(Job j) {
+            if (j.key() != null) lowByKey.remove(j.key(), j);
+            return j;
+        }
+
+        private synchronized int queued(ArrayDeque<Job> q) {
+            return q.size();
+        }
+
+        // Called with the lock held; the failure itself is delivered after it is released
+        private void drop(List<Runnable> out, Job j, Counter counter, String reason) {
+            counter.increment();
+            out.add(() -> j.result().completeExceptionally(new DroppedException(upstream, reason)));
+        }
+    }
+}
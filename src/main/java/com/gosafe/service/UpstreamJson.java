@@ -0,0 +1,224 @@
+package com.gosafe.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadFeature;
+import com.gosafe.entity.Poi;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Streaming readers for the OSRM and Overpass responses.
+ *
+ * Responses are walked token by token straight off the body stream and only
+ * the fields we use are materialised: no String copy of the body, no JsonNode
+ * tree. Everything else (intersections, annotations, unused tags) is skipped
+ * without being decoded. The stream is closed once read.
+ */
+public final class UpstreamJson {
+
+    private static final JsonFactory JSON = JsonFactory.builder()
+            .enable(StreamReadFeature.USE_FAST_DOUBLE_PARSER)
+            .build();
+
+    private UpstreamJson() {}
+
+    // ─── OSRM /route ──────────────────────────────────────────────────────────
+
+    /** Routes of an OSRM route response; empty unless code is "Ok". */
+    public static List<RoutePath> osrmRoutes(InputStream in) throws IOException {
+        try (JsonParser p = JSON.createParser(in)) {
+            String code = null;
+            List<RoutePath> routes = new ArrayList<>();
+            if (p.nextToken() != JsonToken.START_OBJECT) return List.of();
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                JsonToken t = p.nextToken();
+                if (field.equals("code") && t == JsonToken.VALUE_STRING) code = p.getText();
+                else if (field.equals("routes") && t == JsonToken.START_ARRAY) {
+                    while (p.nextToken() == JsonToken.START_OBJECT) routes.add(route(p));
+                }
+                else p.skipChildren();
+            }
+            return "Ok".equals(code) ? routes : List.of();
+        }
+    }
+
+    private static RoutePath route(JsonParser p) throws IOException {
+        double duration = 0, distance = 0;
+        Coords coords = new Coords();
+        List<RoutePath.Step> steps = new ArrayList<>();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken t = p.nextToken();
+            switch (field) {
+                case "duration" -> duration = p.getValueAsDouble();
+                case "distance" -> distance = p.getValueAsDouble();
+                case "geometry" -> { if (t == JsonToken.START_OBJECT) geometry(p, coords); else p.skipChildren(); }
+                case "legs"     -> { if (t == JsonToken.START_ARRAY) legs(p, steps); else p.skipChildren(); }
+                default         -> p.skipChildren();
+            }
+        }
+        return new RoutePath(duration, distance, coords.lat(), coords.lng(), steps);
+    }
+
+    // GeoJSON LineString: {"coordinates": [[lng, lat], ...], ...}
+    private static void geometry(JsonParser p, Coords coords) throws IOException {
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken t = p.nextToken();
+            if (field.equals("coordinates") && t == JsonToken.START_ARRAY) {
+                double[] ll = new double[2];
+                while (p.nextToken() == JsonToken.START_ARRAY) {
+                    if (lngLat(p, ll)) coords.add(ll[1], ll[0]);
+                }
+            }
+            else p.skipChildren();
+        }
+    }
+
+    private static void legs(JsonParser p, List<RoutePath.Step> steps) throws IOException {
+        while (p.nextToken() == JsonToken.START_OBJECT) {
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                JsonToken t = p.nextToken();
+                if (field.equals("steps") && t == JsonToken.START_ARRAY) {
+                    while (p.nextToken() == JsonToken.START_OBJECT) {
+                        RoutePath.Step s = step(p);
+                        if (s != null) steps.add(s);
+                    }
+                }
+                else p.skipChildren();
+            }
+        }
+    }
+
+    // {"name": ..., "maneuver": {"location": [lng, lat], ...}, ...}; null without a location
+    private static RoutePath.Step step(JsonParser p) throws IOException {
+        String name = "";
+        double[] loc = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken t = p.nextToken();
+            if (field.equals("name") && t == JsonToken.VALUE_STRING) name = p.getText();
+            else if (field.equals("maneuver") && t == JsonToken.START_OBJECT) {
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String f = p.currentName();
+                    JsonToken v = p.nextToken();
+                    if (f.equals("location") && v == JsonToken.START_ARRAY) {
+                        loc = new double[2];
+                        if (!lngLat(p, loc)) loc = null;
+                    }
+                    else p.skipChildren();
+                }
+            }
+            else p.skipChildren();
+        }
+        return loc == null ? null : new RoutePath.Step(name, loc[1], loc[0]);
+    }
+
+    // Reads [lng, lat(, ...)] after its START_ARRAY into ll; false when malformed
+    private static boolean lngLat(JsonParser p, double[] ll) throws IOException {
+        int i = 0;
+        JsonToken t;
+        while ((t = p.nextToken()) != JsonToken.END_ARRAY) {
+            if (t.isNumeric() && i < 2) ll[i++] = p.getDoubleValue();
+            else p.skipChildren();
+        }
+        return i == 2;
+    }
+
+    /** Growable parallel lat / lng arrays. */
+    private static final class Coords {
+        private double[] lat = new double[256], lng = new double[256];
+        private int size;
+
+        void add(double la, double ln) {
+            if (size == lat.length) {
+                lat = Arrays.copyOf(lat, size * 2);
+                lng = Arrays.copyOf(lng, size * 2);
+            }
+            lat[size] = la;
+            lng[size] = ln;
+            size++;
+        }
+
+        double[] lat() { return Arrays.copyOf(lat, size); }
+        double[] lng() { return Arrays.copyOf(lng, size); }
+    }
+
+    // ─── Overpass [out:json] ──────────────────────────────────────────────────
+
+    /** Named POIs of an Overpass response; the brand tag wins over name. */
+    public static List<Poi> overpassPois(InputStream in) throws IOException {
+        try (JsonParser p = JSON.createParser(in)) {
+            List<Poi> pois = new ArrayList<>();
+            if (p.nextToken() != JsonToken.START_OBJECT) return pois;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                JsonToken t = p.nextToken();
+                if (field.equals("elements") && t == JsonToken.START_ARRAY) {
+                    while (p.nextToken() == JsonToken.START_OBJECT) {
+                        Poi poi = element(p);
+                        if (poi != null) pois.add(poi);
+                    }
+                }
+                else p.skipChildren();
+            }
+            return pois;
+        }
+    }
+
+    private static Poi element(JsonParser p) throws IOException {
+        long id = 0;
+        double lat = 0, lng = 0;
+        String brand = null, name = null, shop = null, amenity = null, street = null, suburb = null, city = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken t = p.nextToken();
+            switch (field) {
+                case "id"  -> id  = p.getValueAsLong();
+                case "lat" -> lat = p.getValueAsDouble();
+                case "lon" -> lng = p.getValueAsDouble();
+                case "tags" -> {
+                    if (t != JsonToken.START_OBJECT) { p.skipChildren(); break; }
+                    while (p.nextToken() == JsonToken.FIELD_NAME) {
+                        String tag = p.currentName();
+                        p.nextToken();
+                        switch (tag) {
+                            case "brand"       -> brand   = p.getValueAsString();
+                            case "name"        -> name    = p.getValueAsString();
+                            case "shop"        -> shop    = p.getValueAsString();
+                            case "amenity"     -> amenity = p.getValueAsString();
+                            case "addr:street" -> street  = p.getValueAsString();
+                            case "addr:suburb" -> suburb  = p.getValueAsString();
+                            case "addr:city"   -> city    = p.getValueAsString();
+                            default            -> p.skipChildren();
+                        }
+                    }
+                }
+                default -> p.skipChildren();
+            }
+        }
+        String label = brand != null ? brand : name;
+        if (label == null) return null;
+
+        Poi poi = new Poi();
+        poi.setId(id);
+        poi.setName(label);
+        poi.setCategory(shop != null ? shop : amenity != null ? amenity : "shop");
+        poi.setLat(lat);
+        poi.setLng(lng);
+
+        String area = suburb != null ? suburb : city;
+        poi.setStation(street != null && area != null ? street + ", " + area
+                     : street != null ? street
+                     : area   != null ? area : "Along route");
+        return poi;
+    }
+}
@@ -0,0 +1,188 @@
+package com.gosafe.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final SingleFlight<String, String> flights = new SingleFlight<String, String>().bindTo(registry, "test");
+
+    @Test
+    void concurrentCallsForOneKeyShareOneCall() {
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<String> call = new CompletableFuture<>();
+
+        CompletableFuture<String> a = flights.run("k", () -> { calls.incrementAndGet(); return call; });
+        CompletableFuture<String> b = flights.run("k", () -> { calls.incrementAndGet(); return call; });
+        call.complete("v");
+
+        assertThat(calls).hasValue(1);
+        assertThat(a).isCompletedWithValue("v");
+        assertThat(b).isCompletedWithValue("v");
+        assertThat(count("leader")).isEqualTo(1);
+        assertThat(count("coalesced")).isEqualTo(1);
+    }
+
+    @Test
+    void keyIsFreedOnceTheCallCompletes() {
+        AtomicInteger calls = new AtomicInteger();
+        flights.run("k", () -> { calls.incrementAndGet(); return CompletableFuture.completedFuture("1"); });
+        CompletableFuture<String> second =
+            flights.run("k", () -> { calls.incrementAndGet(); return CompletableFuture.completedFuture("2"); });
+
+        assertThat(calls).hasValue(2);
+        assertThat(second).isCompletedWithValue("2");
+    }
+
+    @Test
+    void failureReachesEveryWaiterAndFreesTheKey() {
+        CompletableFuture<String> call = new CompletableFuture<>();
+        CompletableFuture<String> a = flights.run("k", () -> call);
+        CompletableFuture<String> b = flights.run("k", () -> call);
+        call.completeExceptionally(new IllegalStateException("boom"));
+
+        assertThat(a).isCompletedExceptionally();
+        assertThat(b).isCompletedExceptionally();
+        assertThat(flights.run("k", () -> CompletableFuture.completedFuture("again"))).isCompletedWithValue("again");
+    }
+
+    @Test
+    void supplierThatThrowsFailsTheFlight() {
+        CompletableFuture<String> f = flights.run("k", () -> { throw new IllegalStateException("boom"); });
+
+        assertThat(f).isCompletedExceptionally();
+        assertThat(flights.run("k", () -> CompletableFuture.completedFuture("ok"))).isCompletedWithValue("ok");
+    }
+
+    @Test
+    void oneWaiterGivingUpDoesNotCancelTheCall() {
+        CompletableFuture<String> call = new CompletableFuture<>();
+        CompletableFuture<String> a = flights.run("k", () -> call);
+        CompletableFuture<String> b = flights.run("k", () -> call);
+
+        a.cancel(false);
+        assertThat(call).isNotDone();
+
+        call.complete("v");
+        assertThat(b).isCompletedWithValue("v");
+        assertThat(count("abandoned")).isZero();
+    }
+
+    @Test
+    void lastWaiterGivingUpCancelsTheCallAndFreesTheKey() {
+        CompletableFuture<String> call = new CompletableFuture<>();
+        CompletableFuture<String> a = flights.run("k", () -> call);
+        CompletableFuture<String> b = flights.run("k", () -> call);
+
+        a.cancel(false);
+        b.completeOnTimeout("timed out", 0, TimeUnit.MILLISECONDS).join();
+
+        assertThat(call).isCancelled();
+        assertThat(count("abandoned")).isEqualTo(1);
+
+        AtomicInteger calls = new AtomicInteger();
+        flights.run("k", () -> { calls.incrementAndGet(); return new CompletableFuture<>(); });
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void waiterJoiningAfterOthersLeftKeepsTheCallAlive() {
+        CompletableFuture<String> call = new CompletableFuture<>();
+        CompletableFuture<String> a = flights.run("k", () -> call);
+        CompletableFuture<String> b = flights.run("k", () -> call);
+        a.cancel(false);
+        CompletableFuture<String> c = flights.run("k", () -> call);
+        b.cancel(false);
+
+        assertThat(call).isNotDone();
+        call.complete("v");
+        assertThat(c).isCompletedWithValue("v");
+    }
+
+    @Test
+    void waitersCompletedAfterTheResultDoNotCountAsLeaving() {
+        CompletableFuture<String> call = new CompletableFuture<>();
+        CompletableFuture<String> a = flights.run("k", () -> call);
+        call.complete("v");
+        a.cancel(false);
+
+        assertThat(count("abandoned")).isZero();
+    }
+
+    @Test
+    void concurrentJoinAndLeaveLeavesNoStaleFlight() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            for (int round = 0; round < 200; round++) {
+                String key = "k" + round;
+                CompletableFuture<String> call = new CompletableFuture<>();
+                CountDownLatch go = new CountDownLatch(1);
+                CompletableFuture<?>[] done = new CompletableFuture<?>[8];
+                for (int i = 0; i < done.length; i++) {
+                    done[i] = CompletableFuture.runAsync(() -> {
+                        try { go.await(); } catch (InterruptedException e) { throw new IllegalStateException(e); }
+                        flights.run(key, () -> call).cancel(false);
+                    }, pool);
+                }
+                go.countDown();
+                CompletableFuture.allOf(done).get(5, TimeUnit.SECONDS);
+
+                assertThat(call).isCancelled();
+                CompletableFuture<String> fresh = CompletableFuture.completedFuture("fresh");
+                assertThat(flights.run(key, () -> fresh)).isCompletedWithValue("fresh");
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void derivedCancelsTheSourceWhenTheDependentIsGivenUp() {
+        CompletableFuture<String> source = new CompletableFuture<>();
+        CompletableFuture<Integer> dependent = SingleFlight.derived(source, source.thenApply(String::length));
+
+        dependent.cancel(false);
+
+        assertThat(source).isCancelled();
+    }
+
+    @Test
+    void derivedLeavesACompletedSourceAlone() {
+        CompletableFuture<String> source = new CompletableFuture<>();
+        CompletableFuture<Integer> dependent = SingleFlight.derived(source, source.thenApply(String::length));
+
+        source.complete("four");
+
+        assertThat(dependent).isCompletedWithValue(4);
+        assertThat(source).isCompletedWithValue("four");
+    }
+
+    @Test
+    void derivedReleasesTheSharedCallThroughItsCopy() {
+        CompletableFuture<String> call = new CompletableFuture<>();
+        CompletableFuture<String> copy = flights.run("k", () -> call);
+        CompletableFuture<Integer> length = SingleFlight.derived(copy, copy.thenApply(String::length));
+
+        length.completeOnTimeout(-1, 0, TimeUnit.MILLISECONDS).join();
+
+        assertThat(copy).isCancelled();
+        assertThat(call).isCancelled();
+        assertThatThrownBy(copy::join).isInstanceOf(CancellationException.class);
+    }
+
+    private double count(String result) {
+        return registry.get("gosafe.singleflight.calls").tags("name", "test", "result", result).functionCounter().count();
+    }
+}
@@ -0,0 +1,85 @@
+package com.gosafe.geo;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * sample.osm.pbf: a zlib block with a 3×3 grid of dense nodes (ids 1..9, lat 19.000 + 0.001·row,
+ * lng 72.800 + 0.001·col), then a raw block with plain node 100 at 19.0105, 72.8105 (granularity
+ * 1000 and non-zero offsets) and six ways.
+ */
+class OsmPbfReaderTest {
+
+    static final Path SAMPLE = Path.of("src/test/resources/osm/sample.osm.pbf");
+
+    @Test
+    void decodesDenseAndPlainNodes() throws IOException {
+        Map<Long, int[]> nodes = new LinkedHashMap<>();
+        OsmPbfReader.read(SAMPLE, (id, lat, lng) -> nodes.put(id, new int[]{ lat, lng }), null);
+
+        assertThat(nodes.keySet()).containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 100L);
+        assertThat(nodes.get(1L)).containsExactly(19_000_000, 72_800_000);
+        assertThat(nodes.get(6L)).containsExactly(19_001_000, 72_802_000);
+        assertThat(nodes.get(9L)).containsExactly(19_002_000, 72_802_000);
+        assertThat(nodes.get(100L)).containsExactly(19_010_500, 72_810_500);
+    }
+
+    @Test
+    void decodesWaysWithRefsAndTags() throws IOException {
+        Map<Long, long[]> refs = new LinkedHashMap<>();
+        Map<Long, Map<String, String>> tags = new HashMap<>();
+        OsmPbfReader.read(SAMPLE, null, (id, r, t) -> { refs.put(id, r); tags.put(id, t); });
+
+        assertThat(refs.keySet()).containsExactly(1L, 2L, 3L, 4L, 5L, 6L);
+        assertThat(refs.get(1L)).containsExactly(1, 2, 3);
+        assertThat(refs.get(5L)).containsExactly(3, 6, 9, 100);
+        assertThat(tags.get(1L)).containsExactlyInAnyOrderEntriesOf(Map.of("highway", "residential", "name", "MG Road"));
+        assertThat(tags.get(2L)).containsExactlyInAnyOrderEntriesOf(
+            Map.of("highway", "primary", "maxspeed", "60", "oneway", "yes"));
+        assertThat(tags.get(6L)).containsExactlyInAnyOrderEntriesOf(Map.of("highway", "residential"));
+    }
+
+    @Test
+    void nullSinkSkipsThatKind() throws IOException {
+        List<Long> ways = new ArrayList<>();
+        OsmPbfReader.read(SAMPLE, null, (id, r, t) -> ways.add(id));
+        List<Long> nodes = new ArrayList<>();
+        OsmPbfReader.read(SAMPLE, (id, lat, lng) -> nodes.add(id), null);
+
+        assertThat(ways).hasSize(6);
+        assertThat(nodes).hasSize(10);
+    }
+
+    @Test
+    void rejectsFilesRequiringUnknownFeatures() throws IOException {
+        // OSMHeader blob, raw, with required_features "HistoricalInformation"
+        byte[] feature = "HistoricalInformation".getBytes();
+        byte[] headerBlock = concat(new byte[]{ 0x22, (byte) feature.length }, feature);
+        byte[] blob = concat(new byte[]{ 0x0a, (byte) headerBlock.length }, headerBlock);
+        byte[] type = "OSMHeader".getBytes();
+        byte[] blobHeader = concat(concat(new byte[]{ 0x0a, (byte) type.length }, type),
+                                   new byte[]{ 0x18, (byte) blob.length });
+        Path file = Files.createTempFile("history", ".osm.pbf");
+        try {
+            Files.write(file, concat(concat(new byte[]{ 0, 0, 0, (byte) blobHeader.length }, blobHeader), blob));
+            assertThatThrownBy(() -> OsmPbfReader.read(file, null, null))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("HistoricalInformation");
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] out = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, out, a.length, b.length);
+        return out;
+    }
+}
@@ -0,0 +1,105 @@
+package com.gosafe.geo;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class RoadGraphBuilderTest {
+
+    // Node indices are the drivable node ids in ascending order; node 7 is only on excluded ways
+    private static final long[] IDS = { 1, 2, 3, 4, 5, 6, 8, 9, 100 };
+
+    @Test
+    void buildsCarGraphFromSample() throws IOException {
+        RoadGraph g = RoadGraphBuilder.build(OsmPbfReaderTest.SAMPLE);
+
+        // residential 1-2-3 and 2-5-8 both ways (8), primary 4→5→6 one-way (2),
+        // tertiary 3-6-9-100 with oneway=-1 (3); footway 7-8-9 and private 1-4-7 dropped
+        assertThat(g.nodeCount()).isEqualTo(IDS.length);
+        assertThat(g.edgeCount()).isEqualTo(13);
+
+        assertThat(edge(g, 1, 2)).isNotNegative();
+        assertThat(edge(g, 2, 1)).isNotNegative();
+        assertThat(edge(g, 4, 5)).isNotNegative();
+        assertThat(edge(g, 5, 4)).isNegative();
+        assertThat(edge(g, 6, 3)).isNotNegative();
+        assertThat(edge(g, 3, 6)).isNegative();
+        assertThat(edge(g, 100, 9)).isNotNegative();
+        assertThat(edge(g, 1, 4)).isNegative();
+        assertThat(edge(g, 8, 9)).isNegative();
+
+        int v = index(100);
+        assertThat(g.lat(v)).isEqualTo(19.0105);
+        assertThat(g.lng(v)).isEqualTo(72.8105);
+    }
+
+    @Test
+    void edgesCarryNamesSpeedsAndLengths() throws IOException {
+        RoadGraph g = RoadGraphBuilder.build(OsmPbfReaderTest.SAMPLE);
+
+        int mg = edge(g, 1, 2), primary = edge(g, 4, 5), sh4 = edge(g, 6, 3), unnamed = edge(g, 2, 5);
+        assertThat(g.roadName(mg)).isEqualTo("MG Road");
+        assertThat(g.roadName(sh4)).isEqualTo("SH 4");
+        assertThat(g.roadName(unnamed)).isEmpty();
+
+        // 0.001° of longitude at 19°N is about 105 m, 0.001° of latitude about 111 m
+        assertThat(g.meters(mg)).isCloseTo(105.3, within(0.5));
+        assertThat(g.meters(unnamed)).isCloseTo(111.3, within(0.5));
+        assertThat(g.seconds(primary)).isCloseTo(g.meters(primary) / (60 / 3.6), within(0.1));
+        assertThat(g.seconds(mg)).isCloseTo(g.meters(mg) / (20 / 3.6), within(0.1));
+    }
+
+    @Test
+    void edgeLengthsBoundTheSearchHeuristic() throws IOException {
+        RoadGraph g = RoadGraphBuilder.build(OsmPbfReaderTest.SAMPLE);
+        for (int e = 0; e < g.edgeCount(); e++) {
+            int a = g.tail[e], b = g.head(e);
+            double dy = (g.latE6[b] - g.latE6[a]) / 1e6 * RoadGraph.M_PER_DEG;
+            double dx = (g.lngE6[b] - g.lngE6[a]) / 1e6 * RoadGraph.M_PER_DEG
+                      * Math.cos(Math.toRadians(Math.min(Math.abs(g.lat(a)), Math.abs(g.lat(b)))));
+            assertThat(g.meters(e)).isGreaterThanOrEqualTo(Math.hypot(dx, dy));
+        }
+    }
+
+    @Test
+    void carProfileDirections() {
+        assertThat(RoadGraphBuilder.directions(Map.of("highway", "residential"))).isEqualTo(3);
+        assertThat(RoadGraphBuilder.directions(Map.of("highway", "motorway"))).isEqualTo(1);
+        assertThat(RoadGraphBuilder.directions(Map.of("highway", "motorway", "oneway", "no"))).isEqualTo(3);
+        assertThat(RoadGraphBuilder.directions(Map.of("highway", "primary", "junction", "roundabout"))).isEqualTo(1);
+        assertThat(RoadGraphBuilder.directions(Map.of("highway", "primary", "oneway", "-1"))).isEqualTo(2);
+        assertThat(RoadGraphBuilder.directions(Map.of("highway", "footway"))).isZero();
+        assertThat(RoadGraphBuilder.directions(Map.of("highway", "service", "area", "yes"))).isZero();
+        assertThat(RoadGraphBuilder.directions(Map.of("highway", "service", "access", "private"))).isZero();
+        assertThat(RoadGraphBuilder.directions(
+            Map.of("highway", "service", "access", "private", "motorcar", "yes"))).isEqualTo(3);
+        assertThat(RoadGraphBuilder.directions(Map.of("highway", "trunk", "motor_vehicle", "no"))).isZero();
+    }
+
+    @Test
+    void carProfileSpeeds() {
+        assertThat(RoadGraphBuilder.speedKmh(Map.of("highway", "primary"))).isEqualTo(55);
+        assertThat(RoadGraphBuilder.speedKmh(Map.of("highway", "primary", "maxspeed", "40"))).isEqualTo(40);
+        assertThat(RoadGraphBuilder.speedKmh(Map.of("highway", "primary", "maxspeed", "30 mph")))
+            .isCloseTo(48.3, within(0.1));
+        assertThat(RoadGraphBuilder.speedKmh(Map.of("highway", "primary", "maxspeed", "none"))).isEqualTo(55);
+        assertThat(RoadGraphBuilder.speedKmh(Map.of("highway", "primary", "maxspeed", "IN:urban"))).isEqualTo(55);
+        assertThat(RoadGraphBuilder.speedKmh(Map.of("highway", "primary", "maxspeed", "300"))).isEqualTo(55);
+    }
+
+    private static int index(long id) {
+        for (int i = 0; i < IDS.length; i++) if (IDS[i] == id) return i;
+        throw new IllegalArgumentException("unknown node " + id);
+    }
+
+    // Edge from OSM node a to OSM node b, or -1
+    private static int edge(RoadGraph g, long a, long b) {
+        int u = index(a), v = index(b);
+        for (int e = g.first[u]; e < g.first[u + 1]; e++) if (g.head(e) == v) return e;
+        return -1;
+    }
+}
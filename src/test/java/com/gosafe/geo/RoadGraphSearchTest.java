@@ -0,0 +1,163 @@
+package com.gosafe.geo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/** Bidirectional A* against plain Dijkstra on random street grids. */
+class RoadGraphSearchTest {
+
+    private static final int SIDE = 25;
+
+    @Test
+    void findsTheSameCostAsDijkstra() {
+        for (long seed = 1; seed <= 5; seed++) {
+            Random rnd = new Random(seed);
+            RoadGraph g = grid(rnd);
+            RoadGraphSearch search = new RoadGraphSearch(g);
+            float[] none = ones(g);
+            for (int q = 0; q < 200; q++) {
+                int s = rnd.nextInt(g.nodeCount()), t = rnd.nextInt(g.nodeCount());
+                double expected = dijkstra(g, s, t, none);
+                RoadGraphSearch.Path p = search.route(s, t);
+                if (Double.isInfinite(expected)) {
+                    assertThat(p).as("seed %d, %d → %d unreachable", seed, s, t).isNull();
+                    continue;
+                }
+                assertThat(p).as("seed %d, %d → %d", seed, s, t).isNotNull();
+                assertValidPath(g, p, s, t);
+                assertThat(cost(g, p, none)).as("seed %d, %d → %d", seed, s, t)
+                    .isCloseTo(expected, within(1e-3 * expected + 1e-3));
+            }
+        }
+    }
+
+    @Test
+    void penalizedSearchesMatchDijkstraOnPenalizedWeights() {
+        Random rnd = new Random(42);
+        RoadGraph g = grid(rnd);
+        RoadGraphSearch search = new RoadGraphSearch(g);
+        for (int q = 0; q < 50; q++) {
+            int s = rnd.nextInt(g.nodeCount()), t = rnd.nextInt(g.nodeCount());
+            if (s == t || Double.isInfinite(dijkstra(g, s, t, ones(g)))) continue;
+
+            float[] factor = ones(g);
+            for (int round = 0; round < 4; round++) {
+                RoadGraphSearch.Path p = search.route(s, t);
+                double expected = dijkstra(g, s, t, factor);
+                assertValidPath(g, p, s, t);
+                assertThat(cost(g, p, factor)).isCloseTo(expected, within(1e-3 * expected + 1e-3));
+                search.penalize(p.edges(), 1.4f);
+                for (int e : p.edges()) factor[e] *= 1.4f;
+            }
+
+            search.clearPenalties();
+            RoadGraphSearch.Path again = search.route(s, t);
+            double fastest = dijkstra(g, s, t, ones(g));
+            assertThat(cost(g, again, ones(g))).isCloseTo(fastest, within(1e-3 * fastest + 1e-3));
+        }
+    }
+
+    @Test
+    void routeToItselfIsEmpty() {
+        RoadGraph g = grid(new Random(7));
+        RoadGraphSearch.Path p = new RoadGraphSearch(g).route(3, 3);
+
+        assertThat(p.nodes()).containsExactly(3);
+        assertThat(p.edges()).isEmpty();
+    }
+
+    // ─── Fixtures ─────────────────────────────────────────────────────────────
+    // Jittered grid near Mumbai; streets to the right and down neighbours, some one-way,
+    // some missing, speeds 5–30 m/s and lengths at least the straight-line distance
+    private static RoadGraph grid(Random rnd) {
+        int n = SIDE * SIDE;
+        int[] lat = new int[n], lng = new int[n];
+        for (int r = 0; r < SIDE; r++)
+            for (int c = 0; c < SIDE; c++) {
+                lat[r * SIDE + c] = 19_000_000 + r * 1000 + rnd.nextInt(300);
+                lng[r * SIDE + c] = 72_800_000 + c * 1000 + rnd.nextInt(300);
+            }
+
+        List<List<int[]>> out = new ArrayList<>();     // per tail: {head, time, length}
+        for (int v = 0; v < n; v++) out.add(new ArrayList<>());
+        for (int r = 0; r < SIDE; r++)
+            for (int c = 0; c < SIDE; c++) {
+                int v = r * SIDE + c;
+                if (c + 1 < SIDE) street(rnd, lat, lng, out, v, v + 1);
+                if (r + 1 < SIDE) street(rnd, lat, lng, out, v, v + SIDE);
+            }
+
+        int m = out.stream().mapToInt(List::size).sum();
+        int[] first = new int[n + 1], head = new int[m], time = new int[m], length = new int[m], name = new int[m];
+        int e = 0;
+        for (int v = 0; v < n; v++) {
+            first[v] = e;
+            for (int[] a : out.get(v)) { head[e] = a[0]; time[e] = a[1]; length[e] = a[2]; name[e] = -1; e++; }
+        }
+        first[n] = e;
+        return new RoadGraph(lat, lng, first, head, time, length, name, new String[0]);
+    }
+
+    private static void street(Random rnd, int[] lat, int[] lng, List<List<int[]>> out, int a, int b) {
+        if (rnd.nextInt(10) == 0) return;
+        double dy = (lat[b] - lat[a]) / 1e6 * RoadGraph.M_PER_DEG;
+        double dx = (lng[b] - lng[a]) / 1e6 * RoadGraph.M_PER_DEG * Math.cos(Math.toRadians(19));
+        int dm = (int) Math.ceil(10 * Math.hypot(dx, dy) * (1 + rnd.nextDouble() * 0.3));
+        int time = Math.max(1, (int) Math.ceil(dm / (5 + rnd.nextDouble() * 25)));
+        int oneway = rnd.nextInt(5);
+        if (oneway != 1) out.get(a).add(new int[]{ b, time, dm });
+        if (oneway != 2) out.get(b).add(new int[]{ a, time, dm });
+    }
+
+    private static float[] ones(RoadGraph g) {
+        float[] f = new float[g.edgeCount()];
+        Arrays.fill(f, 1f);
+        return f;
+    }
+
+    private static double weight(RoadGraph g, int e, float[] factor) {
+        return g.time[e] / 10f * factor[e];
+    }
+
+    private static double cost(RoadGraph g, RoadGraphSearch.Path p, float[] factor) {
+        double c = 0;
+        for (int e : p.edges()) c += weight(g, e, factor);
+        return c;
+    }
+
+    private static double dijkstra(RoadGraph g, int s, int t, float[] factor) {
+        double[] dist = new double[g.nodeCount()];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        dist[s] = 0;
+        PriorityQueue<double[]> queue = new PriorityQueue<>(Comparator.comparingDouble(a -> a[0]));
+        queue.add(new double[]{ 0, s });
+        while (!queue.isEmpty()) {
+            double[] top = queue.poll();
+            int u = (int) top[1];
+            if (top[0] > dist[u]) continue;
+            if (u == t) return dist[u];
+            for (int e = g.first[u]; e < g.first[u + 1]; e++) {
+                double d = dist[u] + weight(g, e, factor);
+                if (d < dist[g.head(e)]) {
+                    dist[g.head(e)] = d;
+                    queue.add(new double[]{ d, g.head(e) });
+                }
+            }
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    private static void assertValidPath(RoadGraph g, RoadGraphSearch.Path p, int s, int t) {
+        assertThat(p.nodes()).hasSize(p.edges().length + 1);
+        assertThat(p.nodes()[0]).isEqualTo(s);
+        assertThat(p.nodes()[p.nodes().length - 1]).isEqualTo(t);
+        for (int i = 0; i < p.edges().length; i++) {
+            assertThat(g.tail[p.edges()[i]]).isEqualTo(p.nodes()[i]);
+            assertThat(g.head(p.edges()[i])).isEqualTo(p.nodes()[i + 1]);
+        }
+    }
+}
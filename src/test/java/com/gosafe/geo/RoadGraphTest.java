@@ -0,0 +1,88 @@
+package com.gosafe.geo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RoadGraphTest {
+
+    @TempDir Path dir;
+
+    // 0 → 1 → 2 along a street, 2 → 0 back on a second one; node 3 is isolated
+    static RoadGraph triangle() {
+        return new RoadGraph(
+            new int[]{ 19_000_000, 19_000_000, 19_001_000, 19_050_000 },
+            new int[]{ 72_800_000, 72_801_000, 72_801_000, 72_850_000 },
+            new int[]{ 0, 1, 2, 3, 3 },
+            new int[]{ 1, 2, 0 },
+            new int[]{ 190, 200, 300 },
+            new int[]{ 1053, 1114, 1530 },
+            new int[]{ 0, 0, 1 },
+            new String[]{ "Marine Drive", "Netaji Subhash Chandra Bose Road — पूर्व" });
+    }
+
+    @Test
+    void saveAndLoadRoundTrip() throws IOException {
+        RoadGraph g = triangle();
+        Path file = dir.resolve("graph.bin");
+        g.save(file);
+        RoadGraph loaded = RoadGraph.load(file);
+
+        assertThat(loaded.nodeCount()).isEqualTo(g.nodeCount());
+        assertThat(loaded.edgeCount()).isEqualTo(g.edgeCount());
+        for (int v = 0; v < g.nodeCount(); v++) {
+            assertThat(loaded.lat(v)).isEqualTo(g.lat(v));
+            assertThat(loaded.lng(v)).isEqualTo(g.lng(v));
+        }
+        for (int e = 0; e < g.edgeCount(); e++) {
+            assertThat(loaded.head(e)).isEqualTo(g.head(e));
+            assertThat(loaded.tail[e]).isEqualTo(g.tail[e]);
+            assertThat(loaded.seconds(e)).isEqualTo(g.seconds(e));
+            assertThat(loaded.meters(e)).isEqualTo(g.meters(e));
+            assertThat(loaded.roadName(e)).isEqualTo(g.roadName(e));
+        }
+        assertThat(loaded.roadName(2)).isEqualTo("Netaji Subhash Chandra Bose Road — पूर्व");
+        assertThat(loaded.maxSpeed).isEqualTo(g.maxSpeed);
+    }
+
+    @Test
+    void fileStartsWithMagicAndVersion() throws IOException {
+        Path file = dir.resolve("graph.bin");
+        triangle().save(file);
+        byte[] head = Files.readAllBytes(file);
+
+        assertThat(new String(head, 0, 4)).isEqualTo("GSRG");
+        assertThat(head[7]).isEqualTo((byte) RoadGraph.VERSION);
+    }
+
+    @Test
+    void rejectsOtherFiles() throws IOException {
+        Path file = dir.resolve("not-a-graph.bin");
+        Files.write(file, new byte[64]);
+
+        assertThatThrownBy(() -> RoadGraph.load(file)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void rejectsInconsistentArrays() {
+        assertThatThrownBy(() -> new RoadGraph(new int[2], new int[2], new int[]{ 0, 1, 1 }, new int[]{ 1 },
+                                               new int[]{ 10 }, new int[]{ 10 }, new int[0], new String[0]))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void snapsToTheNearestRoutableNode() {
+        RoadGraph g = triangle();
+
+        assertThat(g.nearestNode(19.0001, 72.8009, 500)).isEqualTo(1);
+        assertThat(g.nearestNode(19.0009, 72.8011, 500)).isEqualTo(2);
+        // Node 3 has no edges, so a point on top of it finds nothing within 500 m
+        assertThat(g.nearestNode(19.05, 72.85, 500)).isNegative();
+    }
+}
@@ -0,0 +1,143 @@
+package com.gosafe.service;
+
+import com.gosafe.service.UpstreamClient.DroppedException;
+import com.gosafe.service.UpstreamClient.Job;
+import com.gosafe.service.UpstreamClient.Priority;
+import com.gosafe.service.UpstreamClient.Scheduler;
+import com.gosafe.service.UpstreamClient.Upstream;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UpstreamSchedulerTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final List<String> started = new ArrayList<>();
+
+    // One request in flight at a time, no rate limit
+    private Scheduler scheduler(Duration highMaxWait, int lowCapacity) {
+        return new Scheduler(Upstream.NOMINATIM, registry, 1, 0, 1, highMaxWait, lowCapacity, Duration.ofSeconds(5));
+    }
+
+    private CompletableFuture<Void> submit(Scheduler s, String name, Priority lane, String key) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        s.submit(new Job(lane, key, result, () -> started.add(name)));
+        return result;
+    }
+
+    @Test
+    void highLaneGoesFirst() {
+        Scheduler s = scheduler(Duration.ofSeconds(10), 8);
+        submit(s, "busy", Priority.HIGH, null);
+        submit(s, "low", Priority.LOW, null);
+        submit(s, "high", Priority.HIGH, null);
+
+        s.release();
+        s.release();
+
+        assertThat(started).containsExactly("busy", "high", "low");
+    }
+
+    @Test
+    void newerLowRequestSupersedesTheQueuedOne() {
+        Scheduler s = scheduler(Duration.ofSeconds(10), 8);
+        submit(s, "busy", Priority.HIGH, null);
+        CompletableFuture<Void> first  = submit(s, "first", Priority.LOW, "user:1");
+        CompletableFuture<Void> other  = submit(s, "other", Priority.LOW, "user:2");
+        CompletableFuture<Void> second = submit(s, "second", Priority.LOW, "user:1");
+
+        assertThatThrownBy(first::join).hasCauseInstanceOf(DroppedException.class)
+                                       .hasMessageContaining("superseded");
+        s.release();
+        s.release();
+
+        assertThat(started).containsExactly("busy", "other", "second");
+        assertThat(other).isNotDone();
+        assertThat(second).isNotDone();
+        assertThat(dropped("superseded")).isEqualTo(1);
+    }
+
+    @Test
+    void startedLowRequestIsNotSuperseded() {
+        Scheduler s = scheduler(Duration.ofSeconds(10), 8);
+        CompletableFuture<Void> first = submit(s, "first", Priority.LOW, "user:1");
+        submit(s, "second", Priority.LOW, "user:1");
+
+        assertThat(first).isNotDone();
+        s.release();
+        assertThat(started).containsExactly("first", "second");
+    }
+
+    @Test
+    void fullLowLaneDropsTheOldest() {
+        Scheduler s = scheduler(Duration.ofSeconds(10), 2);
+        submit(s, "busy", Priority.HIGH, null);
+        CompletableFuture<Void> a = submit(s, "a", Priority.LOW, null);
+        submit(s, "b", Priority.LOW, null);
+        submit(s, "c", Priority.LOW, null);
+
+        assertThatThrownBy(a::join).hasCauseInstanceOf(DroppedException.class);
+        s.release();
+        s.release();
+        assertThat(started).containsExactly("busy", "b", "c");
+        assertThat(dropped("overflow")).isEqualTo(1);
+    }
+
+    @Test
+    void requestsTheCallerGaveUpOnAreSkipped() {
+        Scheduler s = scheduler(Duration.ofSeconds(10), 8);
+        submit(s, "busy", Priority.HIGH, null);
+        CompletableFuture<Void> cancelled = submit(s, "cancelled", Priority.HIGH, null);
+        CompletableFuture<Void> timedOut  = submit(s, "timed out", Priority.LOW, "user:1");
+        submit(s, "wanted", Priority.HIGH, null);
+
+        cancelled.cancel(false);
+        timedOut.complete(null);
+        s.release();
+        s.release();
+
+        assertThat(started).containsExactly("busy", "wanted");
+        assertThat(dropped("abandoned")).isEqualTo(2);
+    }
+
+    @Test
+    void highRequestsExpireAfterTheMaxWait() throws InterruptedException {
+        Scheduler s = scheduler(Duration.ofMillis(20), 8);
+        submit(s, "busy", Priority.HIGH, null);
+        CompletableFuture<Void> stale = submit(s, "stale", Priority.HIGH, null);
+
+        Thread.sleep(50);
+        CompletableFuture<Void> fresh = submit(s, "fresh", Priority.HIGH, null);
+        s.release();
+
+        assertThatThrownBy(stale::join).isInstanceOf(CompletionException.class)
+                                       .hasCauseInstanceOf(DroppedException.class)
+                                       .hasMessageContaining("waited too long");
+        assertThat(fresh).isNotDone();
+        assertThat(started).containsExactly("busy", "fresh");
+        assertThat(dropped("expired")).isEqualTo(1);
+    }
+
+    @Test
+    void inFlightCapHoldsUntilReleased() {
+        Scheduler s = scheduler(Duration.ofSeconds(10), 8);
+        submit(s, "a", Priority.HIGH, null);
+        submit(s, "b", Priority.HIGH, null);
+
+        assertThat(started).containsExactly("a");
+        s.release();
+        assertThat(started).containsExactly("a", "b");
+    }
+
+    private double dropped(String reason) {
+        return registry.get("gosafe.upstream.dropped").tags("upstream", "nominatim", "reason", reason).counter().count();
+    }
+}